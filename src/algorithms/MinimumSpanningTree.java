@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Set;
 
+import datastructures.graph.CsrGraph;
 
 /**
  * My implementation of the Prim's algorithm to find
@@ -557,6 +558,103 @@ public class MinimumSpanningTree {
 		return tree;
 	}
 	
+	/**
+	 * The Prim's algorithm on an undirected weighted {@code CsrGraph}, with
+	 * flat arrays instead of {@code Vertex}, {@code Edge} and {@code Tree}
+	 * objects.
+	 * <p>
+	 * {@code key[v]} is the weight of the lightest edge seen from the tree to
+	 * {@code v}. The priority queue is a binary min heap of longs with the key
+	 * on the high 32 bits and the vertex on the low ones. When a key
+	 * improves we push a new entry instead of updating the old one, and the
+	 * stale entries are skipped when they are extracted. O(E log E).
+	 * @param graph
+	 * @param root Start populating from this vertex
+	 * @param parent filled with the parent of each vertex on the tree; -1 for
+	 * the root and the vertices not reachable from it
+	 * @return The weight of the Minimum Spanning Tree
+	 */
+	public static long calculate(final CsrGraph graph, final int root, final int[] parent) {
+		final int n = graph.vertexCount();
+		final int[] key = new int[n];
+		final boolean[] inTree = new boolean[n];
+		Arrays.fill(key, Integer.MAX_VALUE);
+		Arrays.fill(parent, 0, n, -1);
+
+		long[] heap = new long[16];
+		int size = 0;
+		long weight = 0;
+		key[root] = 0;
+		heap[size++] = entry(0, root);
+		while(size > 0) {
+			final long min = heap[0];
+			heap[0] = heap[--size];
+			siftDown(heap, size);
+			final int vertex = (int) min;
+			if(inTree[vertex] || (int) (min >> 32) != key[vertex]) {
+				continue; //stale entry
+			}
+
+			inTree[vertex] = true;
+			weight += key[vertex];
+			for(int e = graph.firstEdge(vertex); e < graph.endEdge(vertex); e++) {
+				final int other = graph.target(e);
+				final int w = graph.weight(e);
+				if(!inTree[other] && w < key[other]) {
+					key[other] = w;
+					parent[other] = vertex;
+					if(size == heap.length) {
+						heap = Arrays.copyOf(heap, size * 2);
+					}
+					heap[size] = entry(w, other);
+					siftUp(heap, size++);
+				}
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * Entry of the heap: the key on the high bits, so the entries are
+	 * ordered by key (also for negative keys), and the vertex on the low bits
+	 */
+	private static long entry(final int key, final int vertex) {
+		return ((long) key << 32) | vertex;
+	}
+
+	private static void siftUp(final long[] heap, int index) {
+		final long item = heap[index];
+		while(index > 0) {
+			final int parent = (index - 1) >>> 1;
+			if(heap[parent] <= item) {
+				break;
+			}
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = item;
+	}
+
+	private static void siftDown(final long[] heap, final int size) {
+		if(size == 0) {
+			return;
+		}
+		final long item = heap[0];
+		int index = 0;
+		int child;
+		while((child = 2 * index + 1) < size) {
+			if(child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if(item <= heap[child]) {
+				break;
+			}
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = item;
+	}
+	
 	private void log(Object o) {
 		System.out.println(o);		
 	}
@@ -737,6 +835,23 @@ public class MinimumSpanningTree {
 		
 		System.out.println("weigth mst =" + myTree.weight());
 		assertTrue(myTree.weight() == 110, "Minimum weight of example is 110");	
+
+		/*
+		 * The same example on CSR
+		 */
+		final CsrGraph graph = new CsrGraph.Builder(6)
+				.addUndirectedEdge(0, 2, 75)
+				.addUndirectedEdge(0, 1, 9)
+				.addUndirectedEdge(1, 2, 95)
+				.addUndirectedEdge(1, 3, 19)
+				.addUndirectedEdge(1, 4, 42)
+				.addUndirectedEdge(2, 3, 51)
+				.addUndirectedEdge(3, 4, 31)
+				.build();
+		final int[] parent = new int[graph.vertexCount()];
+		assertTrue(calculate(graph, 0, parent) == 110, "Minimum weight on CSR is 110");
+		assertTrue(Arrays.equals(parent, new int[] {-1, 0, 3, 1, 3, -1}),
+				"parents on CSR, vertex 5 is not reachable " + Arrays.toString(parent));
 		
 	}
 
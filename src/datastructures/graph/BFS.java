@@ -1,5 +1,7 @@
 package datastructures.graph;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -190,12 +192,6 @@ public class BFS {
 		 */
 		private final int value;
 		
-		/**
-		 * Mark used to know if a node was already visited
-		 * during the search() 
-		 */
-		private transient boolean visited;
-		
 		/**
 		 * Adjacent vertexs using map to avoid duplicated links.
 		 * I need to order the nodes by insert to follow my test examples more easily
@@ -232,22 +228,6 @@ public class BFS {
 			return this.value;
 		}
 		
-		/**
-		 * Mark the node as visited
-		 * @return
-		 */
-		public void markAsVisited() {
-			this.visited = true;
-		}
-		
-		/**
-		 * Ask if the node was already visited
-		 * @return
-		 */
-		public boolean hasVisited() {
-			return this.visited;
-		}
-		
 		/**
 		 * Construct the node instance with an initial value.
 		 * @param value
@@ -271,22 +251,24 @@ public class BFS {
 	
 	
 	/**
-	 * Traverse the graph
+	 * Traverse the graph. The visited nodes are kept on a set of this search,
+	 * not on the nodes, so the graph can be traversed again.
 	 * @param base
 	 * @return The order of the traverse
 	 */
 	public String search(final BFSNode root) {
-		final StringBuffer order = new StringBuffer();
+		final StringBuilder order = new StringBuilder();
+		final Set<BFSNode> visited = new HashSet<BFSNode>();
 		
 		final Queue queue = new Queue();
+		visited.add(root);
 		queue.enqueue(root);
 		
 		while(!queue.isEmpty()) {
 			final BFSNode node = queue.dequeue();
-			order.append(visit(node));
+			visit(node, order);
 			for(final BFSNode child : node.getAdjacents()) {
-				if(!child.hasVisited()) {
-					child.markAsVisited();
+				if(visited.add(child)) {
 					queue.enqueue(child);					
 				}
 			}
@@ -295,8 +277,138 @@ public class BFS {
 		return order.toString();		
 	}
 
-	private String visit(final BFSNode node) {
-		return (node.getValue() + "->");		
+	private void visit(final BFSNode node, final StringBuilder order) {
+		order.append(node.getValue()).append("->");
+	}
+
+	/**
+	 * Traverse a {@code CsrGraph} from the root
+	 * @param graph
+	 * @param root
+	 * @return the vertices in the order of the traverse
+	 */
+	public static int[] search(final CsrGraph graph, final int root) {
+		return search(graph, root, new VisitedSet(graph.vertexCount()));
+	}
+
+	/**
+	 * {@inheritDoc BFS#search(CsrGraph, int)}
+	 * Reuse the visited set between searches to avoid allocating and
+	 * clearing it every time; it is cleared at the start of the search.
+	 * @param graph
+	 * @param root
+	 * @param visited
+	 * @return the vertices in the order of the traverse
+	 */
+	public static int[] search(final CsrGraph graph, final int root, final VisitedSet visited) {
+		final int[] order = new int[graph.vertexCount()];
+		final int count = search(graph, root, visited, order, null, null);
+		return Arrays.copyOf(order, count);
+	}
+
+	/**
+	 * Traverse a {@code CsrGraph} from the root filling the given arrays,
+	 * without allocating anything. The {@code order} array is also the queue
+	 * of the search: the vertices between {@code head} and {@code tail} are
+	 * the ones waiting to be expanded.
+	 * @param graph
+	 * @param root
+	 * @param visited cleared at the start of the search
+	 * @param order filled with the vertices in the order of the traverse,
+	 * its length must be at least the vertex count
+	 * @param parent if not null, filled with the parent of each visited
+	 * vertex, -1 for the root. The unvisited vertices are not written.
+	 * @param depth if not null, filled with the distance from the root of
+	 * each visited vertex. The unvisited vertices are not written.
+	 * @return number of visited vertices, i.e. the used length of {@code order}
+	 */
+	public static int search(final CsrGraph graph, final int root, final VisitedSet visited,
+			final int[] order, final int[] parent, final int[] depth) {
+		visited.clear();
+		int head = 0;
+		int tail = 0;
+		visited.visit(root);
+		order[tail++] = root;
+		if(parent != null) {
+			parent[root] = -1;
+		}
+		if(depth != null) {
+			depth[root] = 0;
+		}
+
+		while(head < tail) {
+			final int vertex = order[head++];
+			for(int e = graph.firstEdge(vertex); e < graph.endEdge(vertex); e++) {
+				final int child = graph.target(e);
+				if(visited.visit(child)) {
+					order[tail++] = child;
+					if(parent != null) {
+						parent[child] = vertex;
+					}
+					if(depth != null) {
+						depth[child] = depth[vertex] + 1;
+					}
+				}
+			}
+		}
+
+		return tail;
+	}
+
+	/**
+	 * Traverse a {@code CsrGraph} from the root calling the visitor
+	 * @param graph
+	 * @param root
+	 * @param visited cleared at the start of the search
+	 * @param visitor
+	 * @return number of visited vertices
+	 */
+	public static int search(final CsrGraph graph, final int root, final VisitedSet visited,
+			final GraphVisitor visitor) {
+		return search(graph, root, visited, new int[graph.vertexCount()], visitor);
+	}
+
+	/**
+	 * Traverse a {@code CsrGraph} from the root calling the visitor, without
+	 * allocating anything. The depth is tracked with the position where the
+	 * current level of the queue ends.
+	 * @param graph
+	 * @param root
+	 * @param visited cleared at the start of the search
+	 * @param queue the queue of the search, left with the vertices in the
+	 * order of the traverse; its length must be at least the vertex count
+	 * @param visitor
+	 * @return number of visited vertices, i.e. the used length of {@code queue}
+	 */
+	public static int search(final CsrGraph graph, final int root, final VisitedSet visited,
+			final int[] queue, final GraphVisitor visitor) {
+		visited.clear();
+		int head = 0;
+		int tail = 0;
+		visited.visit(root);
+		queue[tail++] = root;
+		visitor.onDiscover(root, -1, 0);
+
+		int depth = 0;
+		int levelEnd = tail;
+		while(head < tail) {
+			if(head == levelEnd) {
+				depth++;
+				levelEnd = tail;
+			}
+			final int vertex = queue[head++];
+			for(int e = graph.firstEdge(vertex); e < graph.endEdge(vertex); e++) {
+				final int child = graph.target(e);
+				visitor.onEdge(vertex, child);
+				if(visited.visit(child)) {
+					queue[tail++] = child;
+					visitor.onDiscover(child, vertex, depth + 1);
+				}
+			}
+			visitor.onFinish(vertex);
+		}
+
+		return tail;
 	}
 	
 	/**
@@ -372,7 +484,66 @@ public class BFS {
 		final String result2 = bfs.search(x0);
 		final String msg2 = "0->1->4->5->3->2->";
 		assertEqual(result2, msg2, "BFS " + msg2);
-		
+		assertEqual(bfs.search(x0), msg2, "BFS again on the same nodes");
+		assertEqual(bfs.search(x1), "1->3->4->2->", "BFS from another root on the same nodes");
+
+		/*
+		 * The same graph on CSR
+		 */
+		final CsrGraph graph = new CsrGraph.Builder(7)
+				.addEdge(0, 1).addEdge(0, 4).addEdge(0, 5)
+				.addEdge(1, 3).addEdge(1, 4)
+				.addEdge(2, 1)
+				.addEdge(3, 2)
+				.addEdge(2, 0) //a cycle back to the root
+				.build();
+		assertEqual(Arrays.toString(search(graph, 0)), "[0, 1, 4, 5, 3, 2]", "BFS on CSR");
+		assertEqual(Arrays.toString(search(graph, 6)), "[6]", "BFS on CSR from an isolated vertex");
+		final VisitedSet visited = new VisitedSet(graph.vertexCount());
+		assertEqual(Arrays.toString(search(graph, 3, visited)), "[3, 2, 1, 0, 4, 5]", "BFS on CSR with a reused visited set");
+		assertEqual(Arrays.toString(search(graph, 1, visited)), "[1, 3, 4, 2, 0, 5]", "and again from another root");
+
+		final int[] order = new int[7];
+		final int[] parent = new int[7];
+		final int[] depth = new int[7];
+		final int count = search(graph, 0, visited, order, parent, depth);
+		assertEqual(Arrays.toString(Arrays.copyOf(order, count)), "[0, 1, 4, 5, 3, 2]", "BFS on CSR filling arrays");
+		assertEqual(Arrays.toString(Arrays.copyOf(parent, 6)), "[-1, 0, 3, 1, 0, 0]", "parent array");
+		assertEqual(Arrays.toString(Arrays.copyOf(depth, 6)), "[0, 1, 3, 2, 1, 1]", "depth array");
+
+		final StringBuilder events = new StringBuilder();
+		final int visitedCount = search(graph, 1, visited, new GraphVisitor() {
+			@Override
+			public void onDiscover(final int vertex, final int parent, final int depth) {
+				events.append('d').append(vertex).append('@').append(depth).append(' ');
+			}
+
+			@Override
+			public void onEdge(final int source, final int target) {
+				events.append(source).append('-').append(target).append(' ');
+			}
+
+			@Override
+			public void onFinish(final int vertex) {
+				events.append('f').append(vertex).append(' ');
+			}
+		});
+		assertTrue(visitedCount == 6, "BFS with a visitor visits the same vertices");
+		assertEqual(events.toString(), "d1@0 1-3 d3@1 1-4 d4@1 f1 3-2 d2@2 f3 f4 2-1 2-0 d0@3 f2 0-1 0-4 0-5 d5@4 f0 f5 ",
+				"visitor callbacks");
+
+		final int[] csrQueue = new int[7];
+		final int[] discovered = new int[7];
+		final int queued = search(graph, 1, visited, csrQueue, new GraphVisitor() {
+			private int count;
+
+			@Override
+			public void onDiscover(final int vertex, final int parent, final int depth) {
+				discovered[this.count++] = vertex;
+			}
+		});
+		assertEqual(Arrays.toString(Arrays.copyOf(csrQueue, queued)), "[1, 3, 4, 2, 0, 5]", "BFS with a visitor on the caller's queue");
+		assertTrue(Arrays.equals(csrQueue, discovered), "the queue has the vertices in the order of discovery");
 	}
 
 	private static void assertEqual(final String result, final String expect, final String msg) {
@@ -0,0 +1,257 @@
+package datastructures.graph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Shortest path between two vertices of an unweighted graph with a
+ * breadth-first search from both ends.
+ * <p>
+ * One search goes forward from the source on the edges of the graph and
+ * the other goes backward from the target on the edges of the transpose.
+ * Each step expands one whole level of the side with the smaller frontier,
+ * and the searches stop as soon as a vertex is visited by both. If the
+ * graph branches {@code b} ways and the path has {@code d} edges, a single
+ * search visits around {@code b^d} vertices, while the two searches visit
+ * around {@code 2 * b^(d/2)}.
+ * <p>
+ * The first vertex found by both sides is on a shortest path: before the
+ * step that finds it, the balls of radius {@code df} (forward) and
+ * {@code db} (backward) didn't touch, so the distance is at least
+ * {@code df + db + 1}, and the path through that vertex has that length.
+ * <p>
+ * An instance keeps the scratch buffers of the searches and reuses them
+ * between queries; it is not thread-safe, use one instance per thread.
+ *
+ * @author David Perez
+ *
+ */
+public final class BidirectionalBFS {
+
+	private final CsrGraph graph;
+	private final CsrGraph transpose;
+
+	private final Side forward;
+	private final Side backward;
+
+	/**
+	 * Vertices visited by both sides on the last query
+	 */
+	private int visitedCount;
+
+	/**
+	 * Queries on a directed graph
+	 * @param graph
+	 * @param transpose the incoming edges of {@code graph}, see
+	 * {@code CsrGraph#transpose()}
+	 */
+	public BidirectionalBFS(final CsrGraph graph, final CsrGraph transpose) {
+		this.graph = graph;
+		this.transpose = transpose;
+		this.forward = new Side(graph.vertexCount());
+		this.backward = new Side(graph.vertexCount());
+	}
+
+	/**
+	 * Queries on an undirected graph, which is its own transpose
+	 * @param graph
+	 */
+	public BidirectionalBFS(final CsrGraph graph) {
+		this(graph, graph);
+	}
+
+	/**
+	 * Visited vertices of one of the searches, and the queue of its levels
+	 */
+	private static final class Side {
+
+		final VisitedSet visited;
+
+		/**
+		 * The previous vertex towards the start of this side, valid only for
+		 * the visited vertices
+		 */
+		final int[] parent;
+
+		/**
+		 * Visited vertices in order; [head, tail) is the frontier
+		 */
+		final int[] queue;
+		int head;
+		int tail;
+
+		Side(final int vertexCount) {
+			this.visited = new VisitedSet(vertexCount);
+			this.parent = new int[vertexCount];
+			this.queue = new int[vertexCount];
+		}
+
+		void start(final int vertex) {
+			this.visited.clear();
+			this.visited.visit(vertex);
+			this.parent[vertex] = -1;
+			this.queue[0] = vertex;
+			this.head = 0;
+			this.tail = 1;
+		}
+
+		int frontierSize() {
+			return this.tail - this.head;
+		}
+
+		/**
+		 * Expand the whole frontier on the edges of the graph
+		 * @param edges the graph for the forward side, the transpose for the
+		 * backward side
+		 * @param other
+		 * @return a vertex visited by both sides, -1 if there is none yet
+		 */
+		int expand(final CsrGraph edges, final Side other) {
+			final int end = this.tail;
+			while(this.head < end) {
+				final int vertex = this.queue[this.head++];
+				for(int e = edges.firstEdge(vertex); e < edges.endEdge(vertex); e++) {
+					final int child = edges.target(e);
+					if(this.visited.visit(child)) {
+						this.parent[child] = vertex;
+						this.queue[this.tail++] = child;
+						if(other.visited.isVisited(child)) {
+							return child;
+						}
+					}
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Find a shortest path from the source to the target
+	 * @param source
+	 * @param target
+	 * @return the vertices of the path, from the source to the target
+	 * included, or null if the target is not reachable from the source
+	 */
+	public int[] shortestPath(final int source, final int target) {
+		this.forward.start(source);
+		this.backward.start(target);
+		int meeting = source == target ? source : -1;
+
+		while(meeting == -1 && this.forward.frontierSize() > 0 && this.backward.frontierSize() > 0) {
+			if(this.forward.frontierSize() <= this.backward.frontierSize()) {
+				meeting = this.forward.expand(this.graph, this.backward);
+			}else {
+				meeting = this.backward.expand(this.transpose, this.forward);
+			}
+		}
+		this.visitedCount = this.forward.tail + this.backward.tail;
+		if(meeting == -1) {
+			return null;
+		}
+
+		int length = 1;
+		for(int v = meeting; this.forward.parent[v] != -1; v = this.forward.parent[v]) {
+			length++;
+		}
+		final int toMeeting = length;
+		for(int v = meeting; this.backward.parent[v] != -1; v = this.backward.parent[v]) {
+			length++;
+		}
+
+		final int[] path = new int[length];
+		int i = toMeeting - 1;
+		for(int v = meeting; v != -1; v = this.forward.parent[v]) {
+			path[i--] = v;
+		}
+		i = toMeeting;
+		for(int v = this.backward.parent[meeting]; v != -1; v = this.backward.parent[v]) {
+			path[i++] = v;
+		}
+		return path;
+	}
+
+	/**
+	 * Number of vertices visited by the last query, adding both sides
+	 * @return
+	 */
+	public int visitedCount() {
+		return this.visitedCount;
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		/*
+		 * 0 -> 1 -> 2 -> 3
+		 * 0 -> 4 -> 3, and 5 -> 0
+		 */
+		final CsrGraph small = new CsrGraph.Builder(6)
+				.addEdge(0, 1).addEdge(1, 2).addEdge(2, 3)
+				.addEdge(0, 4).addEdge(4, 3)
+				.addEdge(5, 0)
+				.build();
+		final BidirectionalBFS bfs = new BidirectionalBFS(small, small.transpose());
+		assertTrue(Arrays.equals(bfs.shortestPath(0, 3), new int[] {0, 4, 3}), "shortest path " + Arrays.toString(bfs.shortestPath(0, 3)));
+		assertTrue(Arrays.equals(bfs.shortestPath(5, 2), new int[] {5, 0, 1, 2}), "shortest path " + Arrays.toString(bfs.shortestPath(5, 2)));
+		assertTrue(Arrays.equals(bfs.shortestPath(2, 2), new int[] {2}), "path to itself");
+		assertTrue(bfs.shortestPath(3, 0) == null, "null if the target is not reachable");
+
+		/*
+		 * Random directed graph: the paths have the length of the BFS from
+		 * the source, and every step is an edge
+		 */
+		final Random random = new Random(3);
+		final int n = 100_000;
+		final CsrGraph.Builder builder = new CsrGraph.Builder(n);
+		for(int i = 0; i < n * 5; i++) {
+			builder.addEdge(random.nextInt(n), random.nextInt(n));
+		}
+		final CsrGraph graph = builder.build();
+		final BidirectionalBFS big = new BidirectionalBFS(graph, graph.transpose());
+		final VisitedSet visited = new VisitedSet(n);
+		final int[] order = new int[n];
+		final int[] depth = new int[n];
+		boolean sameLength = true;
+		boolean validPaths = true;
+		long bidirectionalVisited = 0;
+		long oneSideVisited = 0;
+		for(int query = 0; query < 50; query++) {
+			final int source = random.nextInt(n);
+			final int target = random.nextInt(n);
+			oneSideVisited += BFS.search(graph, source, visited, order, null, depth);
+			final int[] path = big.shortestPath(source, target);
+			bidirectionalVisited += big.visitedCount();
+			if(path == null) {
+				sameLength &= !visited.isVisited(target);
+				continue;
+			}
+			sameLength &= visited.isVisited(target) && path.length == depth[target] + 1;
+			validPaths &= path[0] == source && path[path.length - 1] == target;
+			for(int i = 0; i + 1 < path.length; i++) {
+				boolean edge = false;
+				for(int e = graph.firstEdge(path[i]); e < graph.endEdge(path[i]); e++) {
+					edge |= graph.target(e) == path[i + 1];
+				}
+				validPaths &= edge;
+			}
+		}
+		assertTrue(sameLength, "same length than the BFS from the source");
+		assertTrue(validPaths, "every step of the path is an edge");
+		assertTrue(bidirectionalVisited * 10 < oneSideVisited, "visits less vertices than the BFS from the source: "
+				+ bidirectionalVisited + " vs " + oneSideVisited);
+
+		final CsrGraph undirected = new CsrGraph.Builder(3).addUndirectedEdge(0, 1).addUndirectedEdge(1, 2).build();
+		assertTrue(Arrays.equals(new BidirectionalBFS(undirected).shortestPath(2, 0), new int[] {2, 1, 0}), "undirected graph");
+	}
+
+	private static void assertTrue(final boolean assertion, final String msg) {
+		if(assertion) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Failure: " + msg);
+		}
+	}
+
+}
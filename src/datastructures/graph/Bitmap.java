@@ -0,0 +1,87 @@
+package datastructures.graph;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size set of vertices, one bit per vertex on a {@code long[]}.
+ * It is 32 times smaller than an {@code int[]} per vertex, so the frontier
+ * of a big graph fits on the cache, and it is cleared 64 vertices at once.
+ *
+ * @author David Perez
+ *
+ */
+public final class Bitmap {
+
+	private final long[] words;
+
+	/**
+	 * Create an empty bitmap for the vertices [0, size)
+	 * @param size
+	 */
+	public Bitmap(final int size) {
+		this.words = new long[(size + 63) >>> 6];
+	}
+
+	/**
+	 * Add the vertex
+	 * @param vertex
+	 */
+	public void set(final int vertex) {
+		this.words[vertex >>> 6] |= 1L << vertex;
+	}
+
+	/**
+	 * Ask if the vertex is on the bitmap
+	 * @param vertex
+	 * @return
+	 */
+	public boolean get(final int vertex) {
+		return (this.words[vertex >>> 6] & (1L << vertex)) != 0;
+	}
+
+	/**
+	 * Remove every vertex
+	 */
+	public void clear() {
+		Arrays.fill(this.words, 0);
+	}
+
+	/**
+	 * Number of vertices on the bitmap
+	 * @return
+	 */
+	public int cardinality() {
+		int count = 0;
+		for(final long word : this.words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		final Bitmap bitmap = new Bitmap(130);
+		assertTrue(bitmap.cardinality() == 0 && !bitmap.get(0), "starts empty");
+		bitmap.set(0);
+		bitmap.set(63);
+		bitmap.set(64);
+		bitmap.set(129);
+		bitmap.set(129);
+		assertTrue(bitmap.get(0) && bitmap.get(63) && bitmap.get(64) && bitmap.get(129) && !bitmap.get(1), "set() and get()");
+		assertTrue(bitmap.cardinality() == 4, "cardinality()");
+		bitmap.clear();
+		assertTrue(bitmap.cardinality() == 0 && !bitmap.get(64), "clear()");
+	}
+
+	private static void assertTrue(final boolean assertion, final String msg) {
+		if(assertion) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Failure: " + msg);
+		}
+	}
+
+}
@@ -0,0 +1,282 @@
+package datastructures.graph;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first search from many sources at once that stops early: at a
+ * maximum depth, when it reaches a target vertex, or after visiting a
+ * maximum number of vertices. It answers "which vertices are within k hops
+ * of these seeds" without exploring the whole component.
+ * <p>
+ * An instance is the scratch space of the searches (the visited set, the
+ * queue and the depth of each vertex on the queue) and it is reused between
+ * them, so a search allocates nothing once the buffers fit the graph, and
+ * its cost is the vertices that it visits, not the size of the graph. It is
+ * not thread-safe: use one instance per thread, e.g. {@code BoundedBFS.local()}.
+ * The result of a search is read from the instance, and it is valid until
+ * the next search.
+ *
+ * @author David Perez
+ *
+ */
+public final class BoundedBFS {
+
+	/**
+	 * No target: the search only stops at the depth or the visited limit
+	 */
+	public static final int NO_TARGET = -1;
+
+	/**
+	 * No depth nor visited limit
+	 */
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+
+	private static final ThreadLocal<BoundedBFS> LOCAL = ThreadLocal.withInitial(() -> new BoundedBFS(0));
+
+	private final VisitedSet visited;
+
+	/**
+	 * Visited vertices in order; the ones after {@code head} wait to be
+	 * expanded
+	 */
+	private int[] queue;
+
+	/**
+	 * Depth of each vertex of the queue, by position on the queue
+	 */
+	private int[] depths;
+
+	private int count;
+
+	private boolean targetFound;
+
+	private boolean truncated;
+
+	/**
+	 * Sources of the single-source search
+	 */
+	private final int[] source = new int[1];
+
+	/**
+	 * Create the scratch space for graphs of up to {@code capacity}
+	 * vertices; it grows if a search needs more
+	 * @param capacity
+	 */
+	public BoundedBFS(final int capacity) {
+		this.visited = new VisitedSet(capacity);
+		this.queue = new int[capacity];
+		this.depths = new int[capacity];
+	}
+
+	/**
+	 * The instance of the current thread
+	 * @return
+	 */
+	public static BoundedBFS local() {
+		return LOCAL.get();
+	}
+
+	/**
+	 * Search from the sources
+	 * @param graph
+	 * @param sources the vertices at depth 0, duplicates are ignored
+	 * @param maxDepth the vertices at this depth are not expanded, so the
+	 * result has the vertices within {@code maxDepth} hops of a source
+	 * @param target stop as soon as this vertex is visited, or {@code NO_TARGET}
+	 * @param maxVisited stop after visiting this number of vertices
+	 * @return number of visited vertices
+	 */
+	public int search(final CsrGraph graph, final int[] sources, final int maxDepth, final int target,
+			final int maxVisited) {
+		ensureCapacity(graph.vertexCount());
+		this.visited.clear();
+		this.count = 0;
+		this.targetFound = false;
+		this.truncated = false;
+
+		for(final int source : sources) {
+			if(this.visited.visit(source) && add(source, 0, target, maxVisited)) {
+				return this.count;
+			}
+		}
+
+		int head = 0;
+		while(head < this.count) {
+			final int depth = this.depths[head];
+			if(depth >= maxDepth) {
+				//the queue is sorted by depth: the rest is at the limit too
+				break;
+			}
+			final int vertex = this.queue[head++];
+			for(int e = graph.firstEdge(vertex); e < graph.endEdge(vertex); e++) {
+				final int child = graph.target(e);
+				if(this.visited.visit(child) && add(child, depth + 1, target, maxVisited)) {
+					return this.count;
+				}
+			}
+		}
+		return this.count;
+	}
+
+	/**
+	 * Search from one source
+	 * @param graph
+	 * @param source
+	 * @param maxDepth
+	 * @return number of vertices within {@code maxDepth} hops of the source
+	 */
+	public int search(final CsrGraph graph, final int source, final int maxDepth) {
+		this.source[0] = source;
+		return search(graph, this.source, maxDepth, NO_TARGET, UNLIMITED);
+	}
+
+	/**
+	 * Append a visited vertex to the queue
+	 * @return true if the search has to stop
+	 */
+	private boolean add(final int vertex, final int depth, final int target, final int maxVisited) {
+		if(this.count == maxVisited) {
+			this.truncated = true;
+			return true;
+		}
+		this.queue[this.count] = vertex;
+		this.depths[this.count] = depth;
+		this.count++;
+		if(vertex == target) {
+			this.targetFound = true;
+			return true;
+		}
+		return false;
+	}
+
+	private void ensureCapacity(final int capacity) {
+		if(capacity > this.queue.length) {
+			this.visited.ensureCapacity(capacity);
+			this.queue = Arrays.copyOf(this.queue, capacity);
+			this.depths = Arrays.copyOf(this.depths, capacity);
+		}
+	}
+
+	/**
+	 * Number of vertices visited by the last search
+	 * @return
+	 */
+	public int count() {
+		return this.count;
+	}
+
+	/**
+	 * Vertex visited by the last search
+	 * @param index on [0, count()), in the order of the visit
+	 * @return
+	 */
+	public int vertex(final int index) {
+		checkIndex(index);
+		return this.queue[index];
+	}
+
+	/**
+	 * Distance of the vertex to the nearest source
+	 * @param index on [0, count()), in the order of the visit
+	 * @return
+	 */
+	public int depth(final int index) {
+		checkIndex(index);
+		return this.depths[index];
+	}
+
+	/**
+	 * Copy the visited vertices to the array
+	 * @param dest its length must be at least {@code count()}
+	 * @return count()
+	 */
+	public int copyTo(final int[] dest) {
+		System.arraycopy(this.queue, 0, dest, 0, this.count);
+		return this.count;
+	}
+
+	/**
+	 * Ask if the last search stopped because it reached the target
+	 * @return
+	 */
+	public boolean isTargetFound() {
+		return this.targetFound;
+	}
+
+	/**
+	 * Ask if the last search stopped because it reached the maximum number
+	 * of visited vertices, so there are more vertices on its range
+	 * @return
+	 */
+	public boolean isTruncated() {
+		return this.truncated;
+	}
+
+	private void checkIndex(final int index) {
+		if(index < 0 || index >= this.count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.count);
+		}
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+		/*
+		 * A path 0 - 1 - 2 - ... - 9
+		 */
+		final CsrGraph.Builder builder = new CsrGraph.Builder(10);
+		for(int v = 0; v < 9; v++) {
+			builder.addUndirectedEdge(v, v + 1);
+		}
+		final CsrGraph path = builder.build();
+		final BoundedBFS bfs = new BoundedBFS(0);
+
+		assertTrue(bfs.search(path, 5, 2) == 5, "vertices within 2 hops");
+		final int[] result = new int[10];
+		bfs.copyTo(result);
+		assertTrue(Arrays.equals(Arrays.copyOf(result, 5), new int[] {5, 4, 6, 3, 7}), "copyTo() " + Arrays.toString(result));
+		assertTrue(bfs.depth(0) == 0 && bfs.depth(4) == 2 && !bfs.isTargetFound() && !bfs.isTruncated(), "depth()");
+		assertTrue(bfs.search(path, 5, 0) == 1 && bfs.vertex(0) == 5, "depth 0 is only the source");
+
+		assertTrue(bfs.search(path, new int[] {0, 9, 0}, 1, NO_TARGET, UNLIMITED) == 4, "two sources, one duplicated");
+		assertTrue(bfs.vertex(2) == 1 && bfs.depth(2) == 1 && bfs.vertex(3) == 8, "both sources expand on the same level");
+
+		assertTrue(bfs.search(path, new int[] {0, 9}, UNLIMITED, 6, UNLIMITED) == 8, "stops at the target");
+		assertTrue(bfs.isTargetFound() && bfs.vertex(7) == 6 && bfs.depth(7) == 3, "the target is the last visited vertex");
+
+		assertTrue(bfs.search(path, new int[] {0}, UNLIMITED, NO_TARGET, 3) == 3, "stops at the visited limit");
+		assertTrue(bfs.isTruncated() && !bfs.isTargetFound(), "isTruncated()");
+		assertTrue(bfs.search(path, new int[] {0}, UNLIMITED, NO_TARGET, 10) == 10 && !bfs.isTruncated(), "the limit is not reached");
+
+		try {
+			bfs.vertex(10);
+			assertTrue(false, "vertex() out of the result should fail");
+		} catch (IndexOutOfBoundsException e) {
+			assertTrue(true, "vertex() out of the result fails");
+		}
+
+		//the buffers grow for a bigger graph
+		final CsrGraph.Builder bigger = new CsrGraph.Builder(1000);
+		for(int v = 1; v < 1000; v++) {
+			bigger.addUndirectedEdge(0, v);
+		}
+		assertTrue(bfs.search(bigger.build(), 7, 2) == 1000, "reuse with a bigger graph");
+
+		final BoundedBFS[] other = new BoundedBFS[1];
+		final Thread thread = new Thread(() -> other[0] = local());
+		thread.start();
+		thread.join();
+		assertTrue(local() == local() && other[0] != null && other[0] != local(), "one local() instance per thread");
+	}
+
+	private static void assertTrue(final boolean assertion, final String msg) {
+		if(assertion) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Failure: " + msg);
+		}
+	}
+
+}
@@ -0,0 +1,353 @@
+package datastructures.graph;
+
+import java.util.Arrays;
+
+/**
+ * Immutable graph in Compressed Sparse Row format.
+ * <p>
+ * The vertices are the ints on [0, vertexCount). The edges leaving the
+ * vertex {@code v} are the positions [offsets[v], offsets[v+1]) of the
+ * arrays {@code targets} (the vertex at the other end) and, if the graph is
+ * weighted, {@code weights}:
+ * <pre>
+ * 0 -&gt; 1, 0 -&gt; 2, 2 -&gt; 1
+ * offsets = [0, 2, 2, 3]
+ * targets = [1, 2, 1]
+ * </pre>
+ * Compared with a node object per vertex ({@code BFSNode}, {@code DFSNode},
+ * {@code MinimumSpanningTree.Vertex}), there are no object headers nor
+ * pointers to chase: the whole graph is three flat arrays, and the edges of a
+ * vertex are contiguous in memory. An undirected edge is stored as two
+ * directed edges.
+ * <p>
+ * Build it with a {@code CsrGraph.Builder}.
+ *
+ * @author David Perez
+ *
+ */
+public final class CsrGraph {
+
+	/**
+	 * Position of the first edge of each vertex, plus the total of edges
+	 * at the end
+	 */
+	private final int[] offsets;
+
+	/**
+	 * The vertex at the other end of each edge
+	 */
+	private final int[] targets;
+
+	/**
+	 * Weight of each edge, null if the graph is not weighted
+	 */
+	private final int[] weights;
+
+	private CsrGraph(final int[] offsets, final int[] targets, final int[] weights) {
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+	}
+
+	/**
+	 * Number of vertices
+	 * @return
+	 */
+	public int vertexCount() {
+		return this.offsets.length - 1;
+	}
+
+	/**
+	 * Number of directed edges (an undirected edge counts twice)
+	 * @return
+	 */
+	public int edgeCount() {
+		return this.targets.length;
+	}
+
+	/**
+	 * Number of edges leaving the vertex
+	 * @param vertex
+	 * @return
+	 */
+	public int degree(final int vertex) {
+		return this.offsets[vertex + 1] - this.offsets[vertex];
+	}
+
+	/**
+	 * Position of the first edge of the vertex
+	 * @param vertex
+	 * @return
+	 */
+	public int firstEdge(final int vertex) {
+		return this.offsets[vertex];
+	}
+
+	/**
+	 * Position after the last edge of the vertex, so the edges of the vertex
+	 * are {@code for(int e = firstEdge(v); e < endEdge(v); e++)}
+	 * @param vertex
+	 * @return
+	 */
+	public int endEdge(final int vertex) {
+		return this.offsets[vertex + 1];
+	}
+
+	/**
+	 * The vertex at the other end of the edge
+	 * @param edge position of the edge
+	 * @return
+	 */
+	public int target(final int edge) {
+		return this.targets[edge];
+	}
+
+	/**
+	 * Weight of the edge, 1 if the graph is not weighted
+	 * @param edge position of the edge
+	 * @return
+	 */
+	public int weight(final int edge) {
+		return this.weights == null ? 1 : this.weights[edge];
+	}
+
+	/**
+	 * Returns true if the edges have weights
+	 * @return
+	 */
+	public boolean isWeighted() {
+		return this.weights != null;
+	}
+
+	/**
+	 * The graph with every edge reversed, i.e. the incoming edges of each
+	 * vertex. For an undirected graph it is equal to the graph. O(V + E).
+	 * @return
+	 */
+	public CsrGraph transpose() {
+		final int n = vertexCount();
+		final int[] offsets = new int[n + 1];
+		for(final int target : this.targets) {
+			offsets[target + 1]++;
+		}
+		for(int v = 0; v < n; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+
+		final int[] next = Arrays.copyOf(offsets, n);
+		final int[] sources = new int[this.targets.length];
+		final int[] weights = this.weights == null ? null : new int[this.targets.length];
+		for(int v = 0; v < n; v++) {
+			for(int e = this.offsets[v]; e < this.offsets[v + 1]; e++) {
+				final int position = next[this.targets[e]]++;
+				sources[position] = v;
+				if(weights != null) {
+					weights[position] = this.weights[e];
+				}
+			}
+		}
+		return new CsrGraph(offsets, sources, weights);
+	}
+
+	/**
+	 * Build a graph from parallel arrays of directed edges
+	 * @param vertexCount
+	 * @param from source of each edge
+	 * @param to target of each edge
+	 * @return
+	 */
+	public static CsrGraph fromEdges(final int vertexCount, final int[] from, final int[] to) {
+		final Builder builder = new Builder(vertexCount);
+		for(int i = 0; i < from.length; i++) {
+			builder.addEdge(from[i], to[i]);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Collects an edge list and converts it to CSR. The edges of each vertex
+	 * keep the order in which they were added.
+	 */
+	public static final class Builder {
+
+		private final int vertexCount;
+		private int[] from = new int[16];
+		private int[] to = new int[16];
+		private int[] weights;
+		private int edges;
+
+		/**
+		 * Start a graph with the vertices [0, vertexCount)
+		 * @param vertexCount
+		 */
+		public Builder(final int vertexCount) {
+			if(vertexCount < 0) {
+				throw new IllegalArgumentException("Vertex count cannot be negative, got " + vertexCount);
+			}
+			this.vertexCount = vertexCount;
+		}
+
+		/**
+		 * Add a directed edge without weight
+		 * @param source
+		 * @param target
+		 * @return this builder
+		 */
+		public Builder addEdge(final int source, final int target) {
+			if(this.weights != null) {
+				throw new IllegalStateException("The graph is weighted, add the edge with its weight");
+			}
+			add(source, target);
+			return this;
+		}
+
+		/**
+		 * Add a directed edge with weight. Every edge of a weighted graph
+		 * needs a weight.
+		 * @param source
+		 * @param target
+		 * @param weight
+		 * @return this builder
+		 */
+		public Builder addEdge(final int source, final int target, final int weight) {
+			if(this.weights == null) {
+				if(this.edges > 0) {
+					throw new IllegalStateException("The graph is not weighted, add the edge without weight");
+				}
+				this.weights = new int[this.from.length];
+			}
+			add(source, target);
+			this.weights[this.edges - 1] = weight;
+			return this;
+		}
+
+		/**
+		 * Add an undirected edge, i.e. the edges source-&gt;target and
+		 * target-&gt;source
+		 * @param a
+		 * @param b
+		 * @return this builder
+		 */
+		public Builder addUndirectedEdge(final int a, final int b) {
+			return addEdge(a, b).addEdge(b, a);
+		}
+
+		/**
+		 * Add an undirected edge with weight
+		 * @param a
+		 * @param b
+		 * @param weight
+		 * @return this builder
+		 */
+		public Builder addUndirectedEdge(final int a, final int b, final int weight) {
+			return addEdge(a, b, weight).addEdge(b, a, weight);
+		}
+
+		/**
+		 * Convert the edge list to CSR with a counting sort by source vertex,
+		 * O(V + E). The builder can keep adding edges for another graph.
+		 * @return
+		 */
+		public CsrGraph build() {
+			final int[] offsets = new int[this.vertexCount + 1];
+			for(int i = 0; i < this.edges; i++) {
+				offsets[this.from[i] + 1]++;
+			}
+			for(int v = 0; v < this.vertexCount; v++) {
+				offsets[v + 1] += offsets[v];
+			}
+
+			final int[] next = Arrays.copyOf(offsets, this.vertexCount);
+			final int[] targets = new int[this.edges];
+			final int[] weights = this.weights == null ? null : new int[this.edges];
+			for(int i = 0; i < this.edges; i++) {
+				final int position = next[this.from[i]]++;
+				targets[position] = this.to[i];
+				if(weights != null) {
+					weights[position] = this.weights[i];
+				}
+			}
+			return new CsrGraph(offsets, targets, weights);
+		}
+
+		private void add(final int source, final int target) {
+			checkVertex(source);
+			checkVertex(target);
+			if(this.edges == this.from.length) {
+				final int length = this.from.length * 2;
+				this.from = Arrays.copyOf(this.from, length);
+				this.to = Arrays.copyOf(this.to, length);
+				if(this.weights != null) {
+					this.weights = Arrays.copyOf(this.weights, length);
+				}
+			}
+			this.from[this.edges] = source;
+			this.to[this.edges] = target;
+			this.edges++;
+		}
+
+		private void checkVertex(final int vertex) {
+			if(vertex < 0 || vertex >= this.vertexCount) {
+				throw new IndexOutOfBoundsException("Vertex: " + vertex + ", Vertex count: " + this.vertexCount);
+			}
+		}
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		final CsrGraph graph = new Builder(4)
+				.addEdge(2, 1)
+				.addEdge(0, 1)
+				.addEdge(0, 2)
+				.build();
+		assertTrue(graph.vertexCount() == 4 && graph.edgeCount() == 3 && !graph.isWeighted(), "counts");
+		assertTrue(Arrays.equals(graph.offsets, new int[] {0, 2, 2, 3, 3}), "offsets " + Arrays.toString(graph.offsets));
+		assertTrue(Arrays.equals(graph.targets, new int[] {1, 2, 1}), "targets keep the insertion order");
+		assertTrue(graph.degree(0) == 2 && graph.degree(1) == 0 && graph.degree(3) == 0, "degree()");
+		assertTrue(graph.target(graph.firstEdge(2)) == 1 && graph.weight(0) == 1, "target() and default weight");
+
+		final CsrGraph weighted = new Builder(3)
+				.addUndirectedEdge(0, 1, 5)
+				.addUndirectedEdge(1, 2, 7)
+				.build();
+		assertTrue(weighted.isWeighted() && weighted.edgeCount() == 4 && weighted.degree(1) == 2, "undirected weighted edges");
+		int sum = 0;
+		for(int e = weighted.firstEdge(1); e < weighted.endEdge(1); e++) {
+			sum += weighted.weight(e);
+		}
+		assertTrue(sum == 12, "weights of the edges of a vertex");
+
+		try {
+			new Builder(2).addEdge(0, 2);
+			assertTrue(false, "edges to unknown vertices should fail");
+		} catch (IndexOutOfBoundsException e) {
+			assertTrue(true, "edges to unknown vertices fail");
+		}
+		try {
+			new Builder(2).addEdge(0, 1).addEdge(1, 0, 3);
+			assertTrue(false, "mixing weighted and unweighted edges should fail");
+		} catch (IllegalStateException e) {
+			assertTrue(true, "mixing weighted and unweighted edges fails");
+		}
+
+		final CsrGraph transposed = graph.transpose();
+		assertTrue(Arrays.equals(transposed.offsets, new int[] {0, 0, 2, 3, 3})
+				&& Arrays.equals(transposed.targets, new int[] {0, 2, 0}), "transpose()");
+		assertTrue(weighted.transpose().weight(weighted.transpose().firstEdge(2)) == 7, "transpose() keeps the weights");
+
+		final CsrGraph big = fromEdges(3, new int[] {0, 1, 2}, new int[] {1, 2, 0});
+		assertTrue(big.target(big.firstEdge(2)) == 0 && new Builder(0).build().vertexCount() == 0, "fromEdges() and empty graph");
+	}
+
+	private static void assertTrue(final boolean assertion, final String msg) {
+		if(assertion) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Failure: " + msg);
+		}
+	}
+
+}
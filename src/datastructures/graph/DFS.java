@@ -1,8 +1,14 @@
 package datastructures.graph;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Graph node
@@ -21,11 +27,6 @@ class DFSNode {
 	 */
 	private final Map<Integer, DFSNode> adjacents = new HashMap<Integer, DFSNode>();
 	
-	/**
-	 * Flag to be used on the graph traversal
-	 */
-	private transient boolean visited;
-	
 	/**
 	 * Get the value of the node
 	 * @return
@@ -34,21 +35,6 @@ class DFSNode {
 		return this.value;
 	}
 	
-	/**
-	 * Mark the node as already visited
-	 */
-	public void setAsVisited() {
-		this.visited = true;
-	}
-	
-	/**
-	 * Ask if the node was visited
-	 * @return
-	 */
-	public boolean isVisited() {
-		return this.visited;
-	}
-	
 	/**
 	 * Get a collection of the adjacent nodes
 	 * of the node instance
@@ -103,35 +89,337 @@ class DFSNode {
  */
 public class DFS {
 	
-	private String search(final DFSNode base) {		
-		if(base.isVisited()) {
-			return "";
-		}
-		
-		final StringBuffer path = new StringBuffer();
-		path.append(visit(base));
-		
-		for(final DFSNode node: base.getAdjacents()) {
-			if(!node.isVisited()) {
-				path.append(search(node));				
+	/**
+	 * Traverse the graph. The visited nodes are kept on a set of this search,
+	 * not on the nodes, so the graph can be traversed again.
+	 * <p>
+	 * There is no recursion: each frame of the stack is the iterator over
+	 * the adjacents of a node, so a long path doesn't overflow the call
+	 * stack.
+	 * @param base
+	 * @return The order of the traverse
+	 */
+	private String search(final DFSNode base) {
+		final StringBuilder path = new StringBuilder();
+		final Set<DFSNode> visited = new HashSet<DFSNode>();
+		final Deque<Iterator<DFSNode>> stack = new ArrayDeque<Iterator<DFSNode>>();
+		visit(base, visited, path);
+		stack.push(base.getAdjacents().iterator());
+
+		while(!stack.isEmpty()) {
+			final Iterator<DFSNode> adjacents = stack.peek();
+			if(!adjacents.hasNext()) {
+				stack.pop();
+				continue;
+			}
+			final DFSNode node = adjacents.next();
+			if(!visited.contains(node)) {
+				visit(node, visited, path);
+				stack.push(node.getAdjacents().iterator());
 			}
 		}
-		
 		return path.toString();
-	}	
+	}
 	
 	/**
 	 * Visit a given node. In this case, we visit the node to 
-	 * stringify its value, which we will concatenate on the 
-	 * recursion to print the entire graph on its serach order.
+	 * append its value to the path, so at the end of the search
+	 * the path has the entire graph on its search order.
 	 * @param base
-	 * @return
+	 * @param visited
+	 * @param path
 	 */
-	private String visit(final DFSNode base) {
-		base.setAsVisited();
-		return Integer.toString(base.getValue()) + "->";
+	private void visit(final DFSNode base, final Set<DFSNode> visited, final StringBuilder path) {
+		visited.add(base);
+		path.append(base.getValue()).append("->");
+	}
+
+	/**
+	 * Traverse a {@code CsrGraph} from the root
+	 * @param graph
+	 * @param root
+	 * @return the vertices in the order of the traverse
+	 */
+	public static int[] search(final CsrGraph graph, final int root) {
+		return search(graph, root, new VisitedSet(graph.vertexCount()));
+	}
+
+	/**
+	 * {@inheritDoc DFS#search(CsrGraph, int)}
+	 * Reuse the visited set between searches to avoid allocating and
+	 * clearing it every time; it is cleared at the start of the search.
+	 * @param graph
+	 * @param root
+	 * @param visited
+	 * @return the vertices in the order of the traverse
+	 */
+	public static int[] search(final CsrGraph graph, final int root, final VisitedSet visited) {
+		final int[] order = new int[graph.vertexCount()];
+		final int count = search(graph, root, visited, order, null, null);
+		return Arrays.copyOf(order, count);
+	}
+
+	/**
+	 * Traverse a {@code CsrGraph} from the root filling the given arrays
+	 * @param graph
+	 * @param root
+	 * @param visited cleared at the start of the search
+	 * @param order filled with the vertices in the order of the traverse,
+	 * its length must be at least the vertex count
+	 * @param parent if not null, filled with the parent of each visited
+	 * vertex, -1 for the root. The unvisited vertices are not written.
+	 * @param depth if not null, filled with the depth of each visited vertex
+	 * on the search tree. The unvisited vertices are not written.
+	 * @return number of visited vertices, i.e. the used length of {@code order}
+	 */
+	public static int search(final CsrGraph graph, final int root, final VisitedSet visited,
+			final int[] order, final int[] parent, final int[] depth) {
+		final int n = graph.vertexCount();
+		return search(graph, root, visited, order, parent, depth, new int[n], new int[n]);
+	}
+
+	/**
+	 * Traverse a {@code CsrGraph} from the root filling the given arrays,
+	 * on the caller's stack arrays (see the visitor search) so they can be
+	 * reused between searches
+	 * @param graph
+	 * @param root
+	 * @param visited cleared at the start of the search
+	 * @param order filled with the vertices in the order of the traverse,
+	 * its length must be at least the vertex count
+	 * @param parent if not null, filled with the parent of each visited vertex
+	 * @param depth if not null, filled with the depth of each visited vertex
+	 * @param vertices vertex of each frame, its length must be at least the
+	 * vertex count
+	 * @param edges next edge of each frame, its length must be at least the
+	 * vertex count
+	 * @return number of visited vertices, i.e. the used length of {@code order}
+	 */
+	public static int search(final CsrGraph graph, final int root, final VisitedSet visited,
+			final int[] order, final int[] parent, final int[] depth, final int[] vertices, final int[] edges) {
+		return search(graph, root, visited, new PreOrder(order, parent, depth), vertices, edges);
+	}
+
+	/**
+	 * Traverse a {@code CsrGraph} from the root calling the visitor.
+	 * {@code onDiscover} is called on pre-order and {@code onFinish} on
+	 * post-order.
+	 * @param graph
+	 * @param root
+	 * @param visited cleared at the start of the search
+	 * @param visitor
+	 * @return number of visited vertices
+	 */
+	public static int search(final CsrGraph graph, final int root, final VisitedSet visited,
+			final GraphVisitor visitor) {
+		final int n = graph.vertexCount();
+		return search(graph, root, visited, visitor, new int[n], new int[n]);
+	}
+
+	/**
+	 * Traverse a {@code CsrGraph} from the root, filling {@code order} with
+	 * the vertices in post-order: each vertex after every vertex reachable
+	 * from it that was not visited yet. The reverse of the post-order of a
+	 * DAG is a topological order.
+	 * @param graph
+	 * @param root
+	 * @param visited cleared at the start of the search
+	 * @param order its length must be at least the vertex count
+	 * @return number of visited vertices, i.e. the used length of {@code order}
+	 */
+	public static int postOrder(final CsrGraph graph, final int root, final VisitedSet visited, final int[] order) {
+		final int n = graph.vertexCount();
+		return postOrder(graph, root, visited, order, new int[n], new int[n]);
+	}
+
+	/**
+	 * Post-order traverse on the caller's stack arrays
+	 * @param graph
+	 * @param root
+	 * @param visited cleared at the start of the search
+	 * @param order its length must be at least the vertex count
+	 * @param vertices vertex of each frame, its length must be at least the
+	 * vertex count
+	 * @param edges next edge of each frame, its length must be at least the
+	 * vertex count
+	 * @return number of visited vertices, i.e. the used length of {@code order}
+	 */
+	public static int postOrder(final CsrGraph graph, final int root, final VisitedSet visited, final int[] order,
+			final int[] vertices, final int[] edges) {
+		return search(graph, root, visited, new PostOrder(order), vertices, edges);
+	}
+
+	/**
+	 * Depth-first search without recursion. The stack is two parallel
+	 * arrays: the vertex of each frame, and the position of the next edge of
+	 * that vertex to examine. The frame on top is the vertex being explored,
+	 * so its index is the depth of the vertex and the frame below has its
+	 * parent. The depth of the graph is limited by the arrays (one frame per
+	 * vertex at most), not by the call stack. The arrays are the caller's,
+	 * so nothing is allocated and they can be reused between searches.
+	 * @param graph
+	 * @param root
+	 * @param visited cleared at the start of the search
+	 * @param visitor
+	 * @param vertices vertex of each frame, its length must be at least the
+	 * vertex count
+	 * @param edges next edge of each frame, its length must be at least the
+	 * vertex count
+	 * @return number of visited vertices
+	 */
+	public static int search(final CsrGraph graph, final int root, final VisitedSet visited,
+			final GraphVisitor visitor, final int[] vertices, final int[] edges) {
+		visited.clear();
+		visited.visit(root);
+		visitor.onDiscover(root, -1, 0);
+		int top = 0;
+		vertices[0] = root;
+		edges[0] = graph.firstEdge(root);
+		int count = 1;
+
+		while(top >= 0) {
+			final int vertex = vertices[top];
+			final int edge = edges[top];
+			if(edge == graph.endEdge(vertex)) {
+				visitor.onFinish(vertex);
+				top--;
+				continue;
+			}
+			edges[top] = edge + 1;
+			final int child = graph.target(edge);
+			visitor.onEdge(vertex, child);
+			if(visited.visit(child)) {
+				visitor.onDiscover(child, vertex, top + 1);
+				top++;
+				vertices[top] = child;
+				edges[top] = graph.firstEdge(child);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Visitor that writes the discovered vertices to the result arrays
+	 */
+	private static final class PreOrder implements GraphVisitor {
+
+		private final int[] order;
+		private final int[] parent;
+		private final int[] depth;
+		private int count;
+
+		PreOrder(final int[] order, final int[] parent, final int[] depth) {
+			this.order = order;
+			this.parent = parent;
+			this.depth = depth;
+		}
+
+		@Override
+		public void onDiscover(final int vertex, final int parent, final int depth) {
+			this.order[this.count++] = vertex;
+			if(this.parent != null) {
+				this.parent[vertex] = parent;
+			}
+			if(this.depth != null) {
+				this.depth[vertex] = depth;
+			}
+		}
+	}
+
+	/**
+	 * Visitor that writes the finished vertices to the result array
+	 */
+	private static final class PostOrder implements GraphVisitor {
+
+		private final int[] order;
+		private int count;
+
+		PostOrder(final int[] order) {
+			this.order = order;
+		}
+
+		@Override
+		public void onFinish(final int vertex) {
+			this.order[this.count++] = vertex;
+		}
+	}
+
+	/**
+	 * Kind of an edge on a depth-first search
+	 */
+	public enum EdgeType {
+		/**
+		 * Its target is discovered through it: an edge of the search tree
+		 */
+		TREE,
+		/**
+		 * To an ancestor still on the stack, so the graph has a cycle
+		 */
+		BACK,
+		/**
+		 * To a descendant already finished, not through the tree
+		 */
+		FORWARD,
+		/**
+		 * To a vertex on another branch, or on a previous tree of the forest
+		 */
+		CROSS
+	}
+
+	/**
+	 * Classify every edge of the graph with a depth-first search from each
+	 * vertex not visited yet, in order of the vertex number. An edge to a
+	 * discovered vertex is BACK if the vertex is not finished, FORWARD if it
+	 * was discovered after the source and CROSS otherwise.
+	 * @param graph
+	 * @return the type of each edge, by the position of the edge
+	 */
+	public static EdgeType[] classifyEdges(final CsrGraph graph) {
+		final int n = graph.vertexCount();
+		final EdgeType[] types = new EdgeType[graph.edgeCount()];
+		//discovery time starting at 1, 0 if not discovered yet
+		final int[] discovered = new int[n];
+		final boolean[] finished = new boolean[n];
+		final int[] vertices = new int[n];
+		final int[] edges = new int[n];
+		int time = 0;
+
+		for(int root = 0; root < n; root++) {
+			if(discovered[root] != 0) {
+				continue;
+			}
+			discovered[root] = ++time;
+			int top = 0;
+			vertices[0] = root;
+			edges[0] = graph.firstEdge(root);
+			while(top >= 0) {
+				final int vertex = vertices[top];
+				final int edge = edges[top];
+				if(edge == graph.endEdge(vertex)) {
+					finished[vertex] = true;
+					top--;
+					continue;
+				}
+				edges[top] = edge + 1;
+				final int child = graph.target(edge);
+				if(discovered[child] == 0) {
+					types[edge] = EdgeType.TREE;
+					discovered[child] = ++time;
+					top++;
+					vertices[top] = child;
+					edges[top] = graph.firstEdge(child);
+				}else if(!finished[child]) {
+					types[edge] = EdgeType.BACK;
+				}else if(discovered[child] > discovered[vertex]) {
+					types[edge] = EdgeType.FORWARD;
+				}else {
+					types[edge] = EdgeType.CROSS;
+				}
+			}
+		}
+		return types;
 	}
-	
 
 	/**
 	 * Test cases
@@ -193,6 +481,108 @@ public class DFS {
 		String result1 = dfs.search(n0);
 		String expectation = "0->1->3->2->4->5->";
 		assertEqual(result1, expectation, "DFS search " + expectation);
+		assertEqual(dfs.search(n0), expectation, "DFS again on the same nodes");
+
+		/*
+		 * The same graph on CSR
+		 */
+		final CsrGraph graph = new CsrGraph.Builder(6)
+				.addEdge(0, 1).addEdge(0, 4).addEdge(0, 5)
+				.addEdge(1, 3).addEdge(1, 4)
+				.addEdge(2, 1)
+				.addEdge(3, 2).addEdge(3, 4)
+				.build();
+		assertEqual(Arrays.toString(search(graph, 0)), "[0, 1, 3, 2, 4, 5]", "DFS on CSR");
+		assertEqual(Arrays.toString(search(graph, 4)), "[4]", "DFS on CSR from a vertex without edges");
+		final VisitedSet visited = new VisitedSet(graph.vertexCount());
+		assertEqual(Arrays.toString(search(graph, 3, visited)), "[3, 2, 1, 4]", "DFS on CSR with a reused visited set");
+		assertEqual(Arrays.toString(search(graph, 0, visited)), "[0, 1, 3, 2, 4, 5]", "and again from another root");
+
+		final int[] order = new int[6];
+		final int[] parent = new int[6];
+		final int[] depth = new int[6];
+		final int count = search(graph, 0, visited, order, parent, depth);
+		assertEqual(Arrays.toString(Arrays.copyOf(order, count)), "[0, 1, 3, 2, 4, 5]", "DFS on CSR filling arrays");
+		assertEqual(Arrays.toString(parent), "[-1, 0, 3, 1, 3, 0]", "parent array");
+		assertEqual(Arrays.toString(depth), "[0, 1, 3, 2, 3, 1]", "depth array");
+
+		final StringBuilder events = new StringBuilder();
+		search(graph, 3, visited, new GraphVisitor() {
+			@Override
+			public void onDiscover(final int vertex, final int parent, final int depth) {
+				events.append('d').append(vertex).append(' ');
+			}
+
+			@Override
+			public void onFinish(final int vertex) {
+				events.append('f').append(vertex).append(' ');
+			}
+		});
+		assertEqual(events.toString(), "d3 d2 d1 d4 f4 f1 f2 f3 ", "visitor callbacks");
+
+		final int[] post = new int[6];
+		final int postCount = postOrder(graph, 0, visited, post);
+		assertEqual(Arrays.toString(Arrays.copyOf(post, postCount)), "[2, 4, 3, 1, 5, 0]", "post-order");
+
+		//the same stack arrays reused by every kind of search
+		final int[] vertices = new int[6];
+		final int[] edges = new int[6];
+		assertTrue(search(graph, 0, visited, order, parent, depth, vertices, edges) == 6
+				&& Arrays.toString(order).equals("[0, 1, 3, 2, 4, 5]") && Arrays.toString(depth).equals("[0, 1, 3, 2, 3, 1]"),
+				"DFS on the caller's stack arrays");
+		assertTrue(postOrder(graph, 0, visited, post, vertices, edges) == 6
+				&& Arrays.toString(post).equals("[2, 4, 3, 1, 5, 0]"), "post-order on the caller's stack arrays");
+		final StringBuilder reused = new StringBuilder();
+		search(graph, 3, visited, new GraphVisitor() {
+			@Override
+			public void onFinish(final int vertex) {
+				reused.append(vertex);
+			}
+		}, vertices, edges);
+		assertEqual(reused.toString(), "4123", "visitor on the caller's stack arrays");
+
+		/*
+		 * 0->1 tree, 0->2 forward, 1->2 tree, 2->0 back, 3->1 cross
+		 */
+		final CsrGraph kinds = new CsrGraph.Builder(4)
+				.addEdge(0, 1).addEdge(0, 2)
+				.addEdge(1, 2)
+				.addEdge(2, 0)
+				.addEdge(3, 1)
+				.build();
+		assertEqual(Arrays.toString(classifyEdges(kinds)), "[TREE, FORWARD, TREE, BACK, CROSS]", "edge classification");
+
+		/*
+		 * A path much longer than what the recursion could go
+		 */
+		final int length = 1_000_000;
+		final CsrGraph.Builder path = new CsrGraph.Builder(length);
+		for(int v = 0; v + 1 < length; v++) {
+			path.addEdge(v, v + 1);
+		}
+		final CsrGraph deep = path.build();
+		final int[] deepOrder = search(deep, 0);
+		final int[] deepPost = new int[length];
+		postOrder(deep, 0, new VisitedSet(length), deepPost);
+		assertTrue(deepOrder.length == length && deepOrder[length - 1] == length - 1
+				&& deepPost[0] == length - 1 && deepPost[length - 1] == 0, "DFS on CSR on a path of " + length + " vertices");
+
+		DFSNode head = new DFSNode(0);
+		DFSNode tail = head;
+		for(int v = 1; v < 100_000; v++) {
+			final DFSNode node = new DFSNode(v);
+			tail.addAdjacents(node);
+			tail = node;
+		}
+		assertTrue(dfs.search(head).endsWith("99998->99999->"), "DFS on a path of 100000 nodes");
+	}
+
+	private static void assertTrue(final boolean assertion, final String msg) {
+		if(assertion) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Failure: " + msg);
+		}
 	}
 
 	private static void assertEqual(final String result, final String expectation, final String msg) {
@@ -0,0 +1,256 @@
+package datastructures.graph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Direction-optimizing breadth-first search (Beamer, Asanovic and
+ * Patterson, 2012) on a {@code CsrGraph}.
+ * <p>
+ * The classic BFS is top-down: every vertex of the frontier checks all its
+ * edges looking for unvisited vertices. On low-diameter graphs (social
+ * networks, web graphs) the middle levels have a frontier with most of the
+ * graph, and most of those edges lead to vertices that are already visited.
+ * There a bottom-up step is cheaper: every unvisited vertex looks at its
+ * incoming edges for a parent on the frontier, and it stops at the first
+ * one it finds. The frontier is a {@code Bitmap} during the bottom-up steps,
+ * so the check is one bit.
+ * <p>
+ * The search switches with the heuristic of the paper:
+ * <ul>
+ * 	<li>top-down to bottom-up when the frontier is growing and the edges to
+ * 	check from the frontier ({@code mf}) are more than the edges of the
+ * 	unvisited vertices ({@code mu}) divided by {@code alpha}</li>
+ * 	<li>bottom-up to top-down when the frontier is shrinking and it has
+ * 	less than {@code n / beta} vertices</li>
+ * </ul>
+ * Without the growing and shrinking conditions, a small frontier with many
+ * edges would switch to bottom-up on one level and back on the next one.
+ * Both directions produce the same levels (distances from the root); the
+ * parents may differ, but any of them is a valid BFS tree.
+ *
+ * @author David Perez
+ *
+ */
+public class DirectionOptimizingBFS {
+
+	/**
+	 * Default {@code alpha} of the paper
+	 */
+	public static final int DEFAULT_ALPHA = 15;
+
+	/**
+	 * Default {@code beta} of the paper
+	 */
+	public static final int DEFAULT_BETA = 18;
+
+	/**
+	 * Search from the root with the default parameters
+	 * @param graph
+	 * @param transpose the incoming edges of {@code graph}, see
+	 * {@code CsrGraph#transpose()}. For an undirected graph pass the graph.
+	 * @param root
+	 * @param parent filled with the parent of each vertex on the BFS tree;
+	 * the root is its own parent, and -1 for the vertices not reachable
+	 * @param level filled with the distance from the root, -1 for the
+	 * vertices not reachable
+	 * @return number of visited vertices
+	 */
+	public static int search(final CsrGraph graph, final CsrGraph transpose, final int root,
+			final int[] parent, final int[] level) {
+		return search(graph, transpose, root, parent, level, DEFAULT_ALPHA, DEFAULT_BETA);
+	}
+
+	/**
+	 * Search from the root with the given switching parameters
+	 * @param graph
+	 * @param transpose the incoming edges of {@code graph}
+	 * @param root
+	 * @param parent filled with the parent of each vertex, -1 if not reachable
+	 * @param level filled with the distance from the root, -1 if not reachable
+	 * @param alpha bigger values switch to bottom-up earlier
+	 * @param beta bigger values stay on bottom-up longer
+	 * @return number of visited vertices
+	 * @throws IllegalArgumentException if alpha or beta are less than 1
+	 */
+	public static int search(final CsrGraph graph, final CsrGraph transpose, final int root,
+			final int[] parent, final int[] level, final int alpha, final int beta) {
+		if(alpha < 1 || beta < 1) {
+			throw new IllegalArgumentException("Alpha and beta must be at least 1, got " + alpha + " and " + beta);
+		}
+		final int n = graph.vertexCount();
+		Arrays.fill(parent, 0, n, -1);
+		Arrays.fill(level, 0, n, -1);
+
+		int[] frontier = new int[n];
+		int[] next = new int[n];
+		final Bitmap frontierBitmap = new Bitmap(n);
+		int frontierSize = 0;
+		parent[root] = root;
+		level[root] = 0;
+		frontier[frontierSize++] = root;
+
+		long edgesToCheck = graph.degree(root); //mf
+		long unexploredEdges = graph.edgeCount() - edgesToCheck; //mu
+		boolean bottomUp = false;
+		int previousSize = 0;
+		int visited = 1;
+		int depth = 0;
+		while(frontierSize > 0) {
+			if(!bottomUp && frontierSize > previousSize && edgesToCheck > unexploredEdges / alpha) {
+				bottomUp = true;
+			}else if(bottomUp && frontierSize < previousSize && frontierSize < n / beta) {
+				bottomUp = false;
+			}
+			previousSize = frontierSize;
+
+			int nextSize = 0;
+			long nextEdges = 0;
+			if(bottomUp) {
+				frontierBitmap.clear();
+				for(int i = 0; i < frontierSize; i++) {
+					frontierBitmap.set(frontier[i]);
+				}
+				for(int v = 0; v < n; v++) {
+					if(parent[v] != -1) {
+						continue;
+					}
+					for(int e = transpose.firstEdge(v); e < transpose.endEdge(v); e++) {
+						final int u = transpose.target(e);
+						if(frontierBitmap.get(u)) {
+							parent[v] = u;
+							level[v] = depth + 1;
+							next[nextSize++] = v;
+							nextEdges += graph.degree(v);
+							break;
+						}
+					}
+				}
+			}else {
+				for(int i = 0; i < frontierSize; i++) {
+					final int u = frontier[i];
+					for(int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+						final int v = graph.target(e);
+						if(parent[v] == -1) {
+							parent[v] = u;
+							level[v] = depth + 1;
+							next[nextSize++] = v;
+							nextEdges += graph.degree(v);
+						}
+					}
+				}
+			}
+
+			final int[] swap = frontier;
+			frontier = next;
+			next = swap;
+			frontierSize = nextSize;
+			edgesToCheck = nextEdges;
+			unexploredEdges -= nextEdges;
+			visited += nextSize;
+			depth++;
+		}
+		return visited;
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		/*
+		 * 0 -> 1 -> 3
+		 * 0 -> 2 -> 3 -> 4, and 5 not reachable
+		 */
+		final CsrGraph small = new CsrGraph.Builder(6)
+				.addEdge(0, 1).addEdge(0, 2)
+				.addEdge(1, 3).addEdge(2, 3)
+				.addEdge(3, 4)
+				.build();
+		final int[] parent = new int[6];
+		final int[] level = new int[6];
+		assertTrue(search(small, small.transpose(), 0, parent, level) == 5, "visited vertices");
+		assertTrue(Arrays.equals(level, new int[] {0, 1, 1, 2, 3, -1}), "levels " + Arrays.toString(level));
+		assertTrue(Arrays.equals(parent, new int[] {0, 0, 0, 1, 3, -1}), "parents " + Arrays.toString(parent));
+
+		//only bottom-up steps: alpha so big that it switches at once, and never back
+		search(small, small.transpose(), 0, parent, level, Integer.MAX_VALUE, Integer.MAX_VALUE);
+		assertTrue(Arrays.equals(level, new int[] {0, 1, 1, 2, 3, -1}), "levels bottom-up " + Arrays.toString(level));
+		assertTrue(Arrays.equals(parent, new int[] {0, 0, 0, 1, 3, -1}), "parents bottom-up " + Arrays.toString(parent));
+		try {
+			search(small, small.transpose(), 0, parent, level, 0, DEFAULT_BETA);
+			assertTrue(false, "alpha 0 should fail");
+		} catch (IllegalArgumentException e) {
+			assertTrue(true, "alpha 0 fails");
+		}
+		try {
+			search(small, small.transpose(), 0, parent, level, DEFAULT_ALPHA, 0);
+			assertTrue(false, "beta 0 should fail");
+		} catch (IllegalArgumentException e) {
+			assertTrue(true, "beta 0 fails");
+		}
+
+		/*
+		 * Random low-diameter graph: same levels than the top-down BFS, and
+		 * every parent is one level up with an edge to the vertex
+		 */
+		final Random random = new Random(7);
+		final int n = 20_000;
+		final CsrGraph.Builder builder = new CsrGraph.Builder(n);
+		for(int i = 0; i < n * 8; i++) {
+			builder.addEdge(random.nextInt(n), random.nextInt(n));
+		}
+		final CsrGraph graph = builder.build();
+		final CsrGraph transpose = graph.transpose();
+		final int[] p = new int[n];
+		final int[] l = new int[n];
+		final int visited = search(graph, transpose, 0, p, l);
+
+		final int[] expected = new int[n];
+		Arrays.fill(expected, -1);
+		expected[0] = 0;
+		int reached = 0;
+		for(final int v : BFS.search(graph, 0)) {
+			reached++;
+			for(int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+				if(expected[graph.target(e)] == -1) {
+					expected[graph.target(e)] = expected[v] + 1;
+				}
+			}
+		}
+		assertTrue(visited == reached && Arrays.equals(l, expected), "same levels than the top-down BFS");
+		assertTrue(validParents(graph, p, l), "every parent is one level up with an edge to the vertex");
+
+		search(graph, transpose, 0, p, l, Integer.MAX_VALUE, Integer.MAX_VALUE);
+		assertTrue(Arrays.equals(l, expected) && validParents(graph, p, l), "only bottom-up steps: same levels and valid parents");
+	}
+
+	/**
+	 * Check that the parent of every vertex but the root is one level up,
+	 * with an edge to the vertex
+	 */
+	private static boolean validParents(final CsrGraph graph, final int[] parent, final int[] level) {
+		boolean valid = true;
+		for(int v = 0; v < graph.vertexCount(); v++) {
+			if(level[v] > 0) {
+				boolean edge = false;
+				for(int e = graph.firstEdge(parent[v]); e < graph.endEdge(parent[v]); e++) {
+					edge |= graph.target(e) == v;
+				}
+				valid &= edge && level[parent[v]] == level[v] - 1;
+			}else if(level[v] == -1) {
+				valid &= parent[v] == -1;
+			}
+		}
+		return valid;
+	}
+
+	private static void assertTrue(final boolean assertion, final String msg) {
+		if(assertion) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Failure: " + msg);
+		}
+	}
+
+}
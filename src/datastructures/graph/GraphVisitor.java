@@ -0,0 +1,38 @@
+package datastructures.graph;
+
+/**
+ * Callbacks of a traversal of a {@code CsrGraph}, so the caller decides
+ * what to keep of each visit instead of the search building the whole
+ * result. Every method does nothing by default; implement only the ones
+ * needed.
+ *
+ * @author David Perez
+ *
+ */
+public interface GraphVisitor {
+
+	/**
+	 * The vertex is reached for the first time
+	 * @param vertex
+	 * @param parent the vertex from which it was reached, -1 for the root
+	 * @param depth number of edges from the root on the search tree
+	 */
+	default void onDiscover(final int vertex, final int parent, final int depth) {
+	}
+
+	/**
+	 * An edge is examined, whether its target was visited or not
+	 * @param source
+	 * @param target
+	 */
+	default void onEdge(final int source, final int target) {
+	}
+
+	/**
+	 * Every edge of the vertex was examined
+	 * @param vertex
+	 */
+	default void onFinish(final int vertex) {
+	}
+
+}
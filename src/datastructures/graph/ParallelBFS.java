@@ -0,0 +1,442 @@
+package datastructures.graph;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Level-synchronous breadth-first search on a {@code CsrGraph}, expanding
+ * each level of the frontier in parallel on a {@code ForkJoinPool}.
+ * <p>
+ * Every level the frontier is split in chunks of {@code GRAIN} vertices.
+ * Each thread writes the vertices that it discovers to its own buffer, one
+ * per slot of the pool ({@code ForkJoinWorkerThread#getPoolIndex()}) and one
+ * for the calling thread, so the threads don't share a queue; at the end of
+ * the level the buffers are concatenated into the next frontier. A worker
+ * that replaces a retired one takes its slot, and its buffer. Two
+ * threads can find the same vertex at the same time, so a vertex is claimed
+ * with a CAS on its bit of the visited bitset: only the thread that sets the
+ * bit writes its parent and level, and adds it to the next frontier.
+ * <p>
+ * The buffers, the frontier arrays and the bitset are kept by the instance
+ * and reused by every level and every search, so a search on a graph that
+ * fits them allocates only the small task objects. An instance runs one
+ * search at a time.
+ * <p>
+ * The levels are the same as on the sequential {@code BFS}; the parent of a
+ * vertex is any vertex of the previous level with an edge to it, depending
+ * on which thread claims it first.
+ *
+ * @author David Perez
+ *
+ */
+public class ParallelBFS {
+
+	/**
+	 * Vertices of the frontier expanded by one task. Frontiers smaller than
+	 * this are expanded on the calling thread.
+	 */
+	static final int GRAIN = 1024;
+
+	private final ForkJoinPool pool;
+
+	private final boolean ownsPool;
+
+	/**
+	 * Next-frontier buffer of each slot: 0 for the calling thread, and the
+	 * pool index plus one for the workers. Created when a slot runs its
+	 * first chunk.
+	 */
+	private Buffer[] buffers;
+
+	private AtomicLongArray visited = new AtomicLongArray(0);
+	private int[] frontier = new int[0];
+	private int[] next = new int[0];
+
+	/*
+	 * The current search, read by the tasks. The pool makes the writes of
+	 * the calling thread visible to the tasks that it runs.
+	 */
+	private CsrGraph graph;
+	private int[] parent;
+	private int[] level;
+	private int depth;
+
+	/**
+	 * Search with a new pool of {@code parallelism} threads, released with
+	 * {@code shutdown()}
+	 * @param parallelism
+	 */
+	public ParallelBFS(final int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+		this.ownsPool = true;
+		this.buffers = new Buffer[parallelism + 1];
+	}
+
+	/**
+	 * Search on an existing pool, e.g. {@code ForkJoinPool.commonPool()}
+	 * @param pool
+	 */
+	public ParallelBFS(final ForkJoinPool pool) {
+		this.pool = pool;
+		this.ownsPool = false;
+		this.buffers = new Buffer[pool.getParallelism() + 1];
+	}
+
+	/**
+	 * Number of threads of the pool
+	 * @return
+	 */
+	public int parallelism() {
+		return this.pool.getParallelism();
+	}
+
+	/**
+	 * Release the threads of the pool, if it was created by this instance
+	 */
+	public void shutdown() {
+		if(this.ownsPool) {
+			this.pool.shutdown();
+		}
+	}
+
+	/**
+	 * Traverse the graph from the root
+	 * @param graph
+	 * @param root
+	 * @param parent filled with the parent of each vertex on the BFS tree;
+	 * the root is its own parent, and -1 for the vertices not reachable
+	 * @param level filled with the distance from the root, -1 for the
+	 * vertices not reachable
+	 * @return number of visited vertices
+	 */
+	public int search(final CsrGraph graph, final int root, final int[] parent, final int[] level) {
+		final int n = graph.vertexCount();
+		Arrays.fill(parent, 0, n, -1);
+		Arrays.fill(level, 0, n, -1);
+		prepare(n);
+		this.graph = graph;
+		this.parent = parent;
+		this.level = level;
+		try {
+			claim(this.visited, root);
+			parent[root] = root;
+			level[root] = 0;
+			this.frontier[0] = root;
+			int frontierSize = 1;
+			int count = 1;
+			this.depth = 0;
+			while(frontierSize > 0) {
+				if(frontierSize < GRAIN * 2) {
+					expand(0, frontierSize, buffer());
+				}else {
+					this.pool.invoke(new Level(frontierSize));
+				}
+				frontierSize = merge();
+				final int[] swap = this.frontier;
+				this.frontier = this.next;
+				this.next = swap;
+				count += frontierSize;
+				this.depth++;
+			}
+			return count;
+		} finally {
+			//don't keep the graph and the arrays of the caller alive
+			this.graph = null;
+			this.parent = null;
+			this.level = null;
+		}
+	}
+
+	/**
+	 * Make the reused arrays fit a graph of {@code n} vertices, and clear
+	 * the bitset
+	 * @param n
+	 */
+	private void prepare(final int n) {
+		if(this.frontier.length < n) {
+			this.frontier = new int[n];
+			this.next = new int[n];
+		}
+		final int words = (n + 63) >>> 6;
+		if(this.visited.length() < words) {
+			this.visited = new AtomicLongArray(words);
+		}else {
+			for(int i = 0; i < words; i++) {
+				this.visited.setPlain(i, 0);
+			}
+		}
+	}
+
+	/**
+	 * Get the buffer of the slot of the current thread
+	 * @return
+	 */
+	private Buffer buffer() {
+		final Thread thread = Thread.currentThread();
+		final int slot = thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == this.pool
+				? ((ForkJoinWorkerThread) thread).getPoolIndex() + 1 : 0;
+		/*
+		 * Only the thread of a slot creates its buffer, and the buffers of
+		 * a previous level were published by the join of that level, so the
+		 * read doesn't need the lock
+		 */
+		final Buffer[] buffers = this.buffers;
+		if(slot < buffers.length && buffers[slot] != null) {
+			return buffers[slot];
+		}
+		return register(slot);
+	}
+
+	/**
+	 * Create the buffer of a slot. The pool may run more threads than its
+	 * parallelism (e.g. to compensate a blocked join), so the array grows
+	 * if needed.
+	 * @param slot
+	 * @return
+	 */
+	private synchronized Buffer register(final int slot) {
+		if(slot >= this.buffers.length) {
+			this.buffers = Arrays.copyOf(this.buffers, Math.max(slot + 1, this.buffers.length * 2));
+		}
+		if(this.buffers[slot] == null) {
+			this.buffers[slot] = new Buffer();
+		}
+		return this.buffers[slot];
+	}
+
+	/**
+	 * Concatenate the buffers of the threads into {@code next}, and empty
+	 * them for the next level
+	 * @return size of the next frontier
+	 */
+	private int merge() {
+		int size = 0;
+		for(final Buffer buffer : this.buffers) {
+			if(buffer == null) {
+				continue;
+			}
+			System.arraycopy(buffer.items, 0, this.next, size, buffer.size);
+			size += buffer.size;
+			buffer.size = 0;
+		}
+		return size;
+	}
+
+	/**
+	 * Set the bit of the vertex
+	 * @param visited
+	 * @param vertex
+	 * @return true if this thread set it, false if it was already set
+	 */
+	private static boolean claim(final AtomicLongArray visited, final int vertex) {
+		final int word = vertex >>> 6;
+		final long bit = 1L << vertex;
+		long current = visited.get(word);
+		while((current & bit) == 0) {
+			final long witness = visited.compareAndExchange(word, current, current | bit);
+			if(witness == current) {
+				return true;
+			}
+			current = witness;
+		}
+		return false;
+	}
+
+	/**
+	 * Expand the frontier vertices [from, to) into the buffer
+	 */
+	private void expand(final int from, final int to, final Buffer out) {
+		final CsrGraph graph = this.graph;
+		final AtomicLongArray visited = this.visited;
+		final int childDepth = this.depth + 1;
+		for(int i = from; i < to; i++) {
+			final int vertex = this.frontier[i];
+			out.ensureRoom(graph.degree(vertex));
+			for(int e = graph.firstEdge(vertex); e < graph.endEdge(vertex); e++) {
+				final int child = graph.target(e);
+				if(claim(visited, child)) {
+					this.parent[child] = vertex;
+					this.level[child] = childDepth;
+					out.items[out.size++] = child;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Growable array of the vertices discovered by one thread on a level
+	 */
+	private static final class Buffer {
+
+		int[] items = new int[GRAIN];
+		int size;
+
+		/**
+		 * Make room for {@code count} more vertices
+		 * @param count
+		 */
+		void ensureRoom(final int count) {
+			if(this.size + count > this.items.length) {
+				this.items = Arrays.copyOf(this.items, Math.max(this.size + count, this.items.length * 2));
+			}
+		}
+	}
+
+	/**
+	 * One level of the search: one {@code Chunk} per {@code GRAIN} vertices
+	 * of the frontier
+	 */
+	private final class Level extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int frontierSize;
+
+		Level(final int frontierSize) {
+			this.frontierSize = frontierSize;
+		}
+
+		@Override
+		protected void compute() {
+			final Chunk[] chunks = new Chunk[(this.frontierSize + GRAIN - 1) / GRAIN];
+			for(int c = 0; c < chunks.length; c++) {
+				final int from = c * GRAIN;
+				chunks[c] = new Chunk(from, Math.min(from + GRAIN, this.frontierSize));
+			}
+			invokeAll(chunks);
+		}
+	}
+
+	/**
+	 * Expand a range of the frontier into the buffer of the thread that
+	 * runs it
+	 */
+	private final class Chunk extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		Chunk(final int from, final int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			expand(this.from, this.to, buffer());
+		}
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		final ParallelBFS bfs = new ParallelBFS(4);
+		assertTrue(bfs.parallelism() == 4, "parallelism()");
+
+		final CsrGraph small = new CsrGraph.Builder(6)
+				.addEdge(0, 1).addEdge(0, 2)
+				.addEdge(1, 3).addEdge(2, 3)
+				.addEdge(3, 4)
+				.build();
+		final int[] parent = new int[6];
+		final int[] level = new int[6];
+		assertTrue(bfs.search(small, 0, parent, level) == 5, "visited vertices");
+		assertTrue(Arrays.equals(level, new int[] {0, 1, 1, 2, 3, -1}), "levels " + Arrays.toString(level));
+
+		//big enough for the frontier to be split between the threads
+		final Random random = new Random(11);
+		final int n = 200_000;
+		final CsrGraph.Builder builder = new CsrGraph.Builder(n);
+		for(int i = 0; i < n * 8; i++) {
+			builder.addEdge(random.nextInt(n), random.nextInt(n));
+		}
+		final CsrGraph graph = builder.build();
+		final int[] p = new int[n];
+		final int[] l = new int[n];
+		final int visited = bfs.search(graph, 0, p, l);
+
+		final int[] expected = new int[n];
+		Arrays.fill(expected, -1);
+		expected[0] = 0;
+		final int[] order = BFS.search(graph, 0);
+		for(final int v : order) {
+			for(int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+				if(expected[graph.target(e)] == -1) {
+					expected[graph.target(e)] = expected[v] + 1;
+				}
+			}
+		}
+		assertTrue(visited == order.length && Arrays.equals(l, expected), "same levels than the sequential BFS");
+		boolean validParents = true;
+		for(int v = 0; v < n; v++) {
+			if(l[v] > 0) {
+				boolean edge = false;
+				for(int e = graph.firstEdge(p[v]); e < graph.endEdge(p[v]); e++) {
+					edge |= graph.target(e) == v;
+				}
+				validParents &= edge && l[p[v]] == l[v] - 1;
+			}
+		}
+		assertTrue(validParents, "every parent is one level up with an edge to the vertex");
+		assertTrue(bfs.bufferCount() <= bfs.parallelism() + 1, "one buffer per thread, reused by every level");
+
+		final int[] frontier = bfs.frontier;
+		assertTrue(bfs.search(graph, 0, p, l) == visited && Arrays.equals(l, expected)
+				&& bfs.frontier.length == frontier.length && bfs.bufferCount() <= bfs.parallelism() + 1,
+				"a second search reuses the arrays and the buffers");
+		assertTrue(bfs.search(small, 0, parent, level) == 5 && Arrays.equals(level, new int[] {0, 1, 1, 2, 3, -1}),
+				"and a smaller graph too");
+		bfs.shutdown();
+
+		//the workers retire after 10 ms without work, and new ones take their slots
+		final ForkJoinPool retiring = new ForkJoinPool(4, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false,
+				0, 64, 1, null, 10, TimeUnit.MILLISECONDS);
+		final ParallelBFS slots = new ParallelBFS(retiring);
+		boolean bounded = true;
+		boolean retired = true;
+		for(int i = 0; i < 5; i++) {
+			bounded &= slots.search(graph, 0, p, l) == visited && slots.bufferCount() <= slots.parallelism() + 1;
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			retired &= retiring.getPoolSize() == 0;
+		}
+		assertTrue(retired, "the workers retire between the searches");
+		assertTrue(bounded, "the buffers don't grow when new workers replace them");
+		retiring.shutdown();
+
+		final ParallelBFS common = new ParallelBFS(ForkJoinPool.commonPool());
+		assertTrue(common.search(graph, 0, p, l) == visited && Arrays.equals(l, expected), "search on the common pool");
+	}
+
+	/**
+	 * Number of slots with a buffer, for the tests
+	 */
+	private int bufferCount() {
+		int count = 0;
+		for(final Buffer buffer : this.buffers) {
+			count += buffer == null ? 0 : 1;
+		}
+		return count;
+	}
+
+	private static void assertTrue(final boolean assertion, final String msg) {
+		if(assertion) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Failure: " + msg);
+		}
+	}
+
+}
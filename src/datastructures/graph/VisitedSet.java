@@ -0,0 +1,121 @@
+package datastructures.graph;
+
+import java.util.Arrays;
+
+/**
+ * Visited vertices of one search, kept out of the graph so the same graph
+ * can be traversed many times, and by many threads (one {@code VisitedSet}
+ * per thread).
+ * <p>
+ * Each vertex has the stamp of the last search that visited it; a vertex is
+ * visited if its stamp is the stamp of the current search. Starting a new
+ * search is then just incrementing the current stamp, O(1), instead of
+ * clearing V flags: running millions of small searches over a big graph
+ * doesn't pay O(V) for each one. A {@code long[]} bitset would be 32 times
+ * smaller, but it has to be cleared between searches.
+ *
+ * @author David Perez
+ *
+ */
+public final class VisitedSet {
+
+	/**
+	 * Stamp of the search that visited each vertex
+	 */
+	private int[] stamps;
+
+	/**
+	 * Stamp of the current search, never zero
+	 */
+	private int epoch = 1;
+
+	/**
+	 * Create an empty set for the vertices [0, capacity)
+	 * @param capacity
+	 */
+	public VisitedSet(final int capacity) {
+		this.stamps = new int[capacity];
+	}
+
+	/**
+	 * Mark the vertex as visited
+	 * @param vertex
+	 * @return true if it was not visited yet
+	 */
+	public boolean visit(final int vertex) {
+		if(this.stamps[vertex] == this.epoch) {
+			return false;
+		}
+		this.stamps[vertex] = this.epoch;
+		return true;
+	}
+
+	/**
+	 * Ask if the vertex was visited on this search
+	 * @param vertex
+	 * @return
+	 */
+	public boolean isVisited(final int vertex) {
+		return this.stamps[vertex] == this.epoch;
+	}
+
+	/**
+	 * Forget every visited vertex, to start a new search. O(1), except
+	 * once every 2^32 searches when the stamp wraps around.
+	 */
+	public void clear() {
+		this.epoch++;
+		if(this.epoch == 0) {
+			Arrays.fill(this.stamps, 0);
+			this.epoch = 1;
+		}
+	}
+
+	/**
+	 * Make room for the vertices [0, capacity), e.g. to reuse the set with
+	 * a bigger graph
+	 * @param capacity
+	 */
+	public void ensureCapacity(final int capacity) {
+		if(capacity > this.stamps.length) {
+			this.stamps = Arrays.copyOf(this.stamps, capacity);
+		}
+	}
+
+	/**
+	 * Number of vertices that the set can hold
+	 * @return
+	 */
+	public int capacity() {
+		return this.stamps.length;
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		final VisitedSet visited = new VisitedSet(4);
+		assertTrue(!visited.isVisited(0), "starts empty");
+		assertTrue(visited.visit(2) && !visited.visit(2) && visited.isVisited(2), "visit() only once");
+		visited.clear();
+		assertTrue(!visited.isVisited(2) && visited.visit(2), "clear() forgets the visited vertices");
+
+		visited.epoch = -1; //the last stamp before wrapping around
+		visited.visit(1);
+		visited.clear();
+		assertTrue(visited.epoch == 1 && !visited.isVisited(1) && !visited.isVisited(2), "clear() when the stamp wraps around");
+
+		visited.ensureCapacity(10);
+		assertTrue(visited.capacity() == 10 && visited.visit(9), "ensureCapacity()");
+	}
+
+	private static void assertTrue(final boolean assertion, final String msg) {
+		if(assertion) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Failure: " + msg);
+		}
+	}
+
+}
@@ -0,0 +1,551 @@
+package datastructures.linear;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue with blocking {@code put}/{@code take}, timeouts and batch
+ * draining, besides the non-blocking {@code queue}/{@code dequeue} contract of
+ * {@code Queue}.
+ * <p>
+ * Consumers wait on a {@code Condition} of a {@code ReentrantLock} instead of
+ * spinning on {@code dequeue()} until it stops returning null. The waiting
+ * threads are parked with {@code LockSupport}, and there are no
+ * {@code synchronized} blocks, so a virtual thread that waits here releases
+ * its carrier thread (it is not pinned) and thousands of consumers are cheap.
+ * <p>
+ * What happens when the queue is full depends on its {@code Backpressure}
+ * policy.
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class BoundedBlockingQueue<T> {
+
+	/**
+	 * Policy used when an item arrives and the queue is full
+	 */
+	public enum Backpressure {
+		/**
+		 * {@code put} waits for space; {@code queue} returns false
+		 */
+		BLOCK,
+		/**
+		 * The new item is discarded, and the methods return false
+		 */
+		DROP_NEWEST,
+		/**
+		 * The oldest item is discarded to make room for the new one
+		 */
+		DROP_OLDEST,
+		/**
+		 * {@code put} throws {@code IllegalStateException}; {@code queue}
+		 * returns false
+		 */
+		REJECT
+	}
+
+	/**
+	 * The circular array with the items
+	 */
+	private final Object[] items;
+
+	/**
+	 * Index of the first item of the queue (the candidate for dequeue)
+	 */
+	private int head;
+
+	/**
+	 * Number of items on the queue
+	 */
+	private int size;
+
+	/**
+	 * Number of items discarded by the backpressure policy
+	 */
+	private long dropped;
+
+	/**
+	 * Policy when the queue is full
+	 */
+	private final Backpressure backpressure;
+
+	/**
+	 * Guards every field of the queue
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Consumers wait here for items
+	 */
+	private final Condition notEmpty = this.lock.newCondition();
+
+	/**
+	 * Producers wait here for space (only with {@code Backpressure.BLOCK})
+	 */
+	private final Condition notFull = this.lock.newCondition();
+
+	/**
+	 * Create a queue that blocks the producers when it is full
+	 * @param capacity
+	 */
+	public BoundedBlockingQueue(final int capacity) {
+		this(capacity, Backpressure.BLOCK);
+	}
+
+	/**
+	 * Create a queue
+	 * @param capacity maximum number of items, at least 1
+	 * @param backpressure policy when the queue is full
+	 */
+	public BoundedBlockingQueue(final int capacity, final Backpressure backpressure) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("Capacity should be at least 1, got " + capacity);
+		}
+		if(backpressure == null) {
+			throw new IllegalArgumentException("The backpressure policy is required");
+		}
+		this.items = new Object[capacity];
+		this.backpressure = backpressure;
+	}
+
+	/**
+	 * Queue an item without waiting.
+	 * @param data
+	 * @return false if the item is null or it was not queued because the
+	 * queue is full
+	 */
+	public boolean queue(final T data) {
+		if(data == null) {
+			return false;
+		}
+		this.lock.lock();
+		try {
+			if(this.size == this.items.length) {
+				if(this.backpressure != Backpressure.DROP_OLDEST) {
+					if(this.backpressure == Backpressure.DROP_NEWEST) {
+						this.dropped++;
+					}
+					return false;
+				}
+				dropOldest();
+			}
+			enqueue(data);
+			return true;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Queue an item, waiting for space if the policy is
+	 * {@code Backpressure.BLOCK}.
+	 * @param data
+	 * @return false if the item is null or it was discarded by the
+	 * {@code Backpressure.DROP_NEWEST} policy
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 * @throws IllegalStateException if the queue is full and the policy is
+	 * {@code Backpressure.REJECT}
+	 */
+	public boolean put(final T data) throws InterruptedException {
+		if(data == null) {
+			return false;
+		}
+		this.lock.lockInterruptibly();
+		try {
+			if(this.size == this.items.length) {
+				switch(this.backpressure) {
+				case DROP_OLDEST:
+					dropOldest();
+					break;
+				case DROP_NEWEST:
+					this.dropped++;
+					return false;
+				case REJECT:
+					throw new IllegalStateException("Queue full");
+				default: //BLOCK
+					while(this.size == this.items.length) {
+						this.notFull.await();
+					}
+				}
+			}
+			enqueue(data);
+			return true;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Queue an item, waiting up to the timeout for space if the policy is
+	 * {@code Backpressure.BLOCK}.
+	 * @param data
+	 * @param timeout
+	 * @param unit
+	 * @return false if the item is null, it was discarded, or the timeout
+	 * elapsed
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 * @throws IllegalStateException if the queue is full and the policy is
+	 * {@code Backpressure.REJECT}
+	 */
+	public boolean put(final T data, final long timeout, final TimeUnit unit) throws InterruptedException {
+		if(data == null) {
+			return false;
+		}
+		long nanos = unit.toNanos(timeout);
+		this.lock.lockInterruptibly();
+		try {
+			if(this.size == this.items.length) {
+				switch(this.backpressure) {
+				case DROP_OLDEST:
+					dropOldest();
+					break;
+				case DROP_NEWEST:
+					this.dropped++;
+					return false;
+				case REJECT:
+					throw new IllegalStateException("Queue full");
+				default: //BLOCK
+					while(this.size == this.items.length) {
+						if(nanos <= 0) {
+							return false;
+						}
+						nanos = this.notFull.awaitNanos(nanos);
+					}
+				}
+			}
+			enqueue(data);
+			return true;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Dequeue an item without waiting
+	 * @return the item, or null if the queue is empty
+	 */
+	public T dequeue() {
+		this.lock.lock();
+		try {
+			if(this.size == 0) {
+				return null;
+			}
+			final T item = remove();
+			this.notFull.signal();
+			return item;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Dequeue an item, waiting until there is one
+	 * @return the item
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public T take() throws InterruptedException {
+		this.lock.lockInterruptibly();
+		try {
+			while(this.size == 0) {
+				this.notEmpty.await();
+			}
+			final T item = remove();
+			this.notFull.signal();
+			return item;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Dequeue an item, waiting up to the timeout until there is one
+	 * @param timeout
+	 * @param unit
+	 * @return the item, or null if the timeout elapsed
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public T take(final long timeout, final TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		this.lock.lockInterruptibly();
+		try {
+			while(this.size == 0) {
+				if(nanos <= 0) {
+					return null;
+				}
+				nanos = this.notEmpty.awaitNanos(nanos);
+			}
+			final T item = remove();
+			this.notFull.signal();
+			return item;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Move up to maxItems items to the collection, without waiting. The lock
+	 * is taken only once for the whole batch.
+	 * @param collection
+	 * @param maxItems
+	 * @return number of items moved
+	 */
+	public int drainTo(final Collection<? super T> collection, final int maxItems) {
+		this.lock.lock();
+		try {
+			return drain(collection, maxItems);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Wait up to the timeout until there is at least one item, then move up
+	 * to maxItems items to the collection. Useful for consumers that process
+	 * items in batches.
+	 * @param collection
+	 * @param maxItems
+	 * @param timeout
+	 * @param unit
+	 * @return number of items moved, zero if the timeout elapsed
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public int drainTo(final Collection<? super T> collection, final int maxItems,
+			final long timeout, final TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		this.lock.lockInterruptibly();
+		try {
+			while(this.size == 0) {
+				if(nanos <= 0) {
+					return 0;
+				}
+				nanos = this.notEmpty.awaitNanos(nanos);
+			}
+			return drain(collection, maxItems);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Number of items on the queue
+	 * @return
+	 */
+	public int size() {
+		this.lock.lock();
+		try {
+			return this.size;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns true only if the queue is empty.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Maximum number of items
+	 * @return
+	 */
+	public int capacity() {
+		return this.items.length;
+	}
+
+	/**
+	 * Number of items discarded by the {@code Backpressure.DROP_NEWEST} and
+	 * {@code Backpressure.DROP_OLDEST} policies
+	 * @return
+	 */
+	public long dropped() {
+		this.lock.lock();
+		try {
+			return this.dropped;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private void dropOldest() {
+		remove();
+		this.dropped++;
+	}
+
+	/**
+	 * Add an item to the tail. Call it holding the lock, with room on the queue.
+	 * @param data
+	 */
+	private void enqueue(final T data) {
+		int tail = this.head + this.size;
+		if(tail >= this.items.length) {
+			tail -= this.items.length;
+		}
+		this.items[tail] = data;
+		this.size++;
+		this.notEmpty.signal();
+	}
+
+	/**
+	 * Remove the item of the head. Call it holding the lock, with items on
+	 * the queue.
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private T remove() {
+		final T item = (T) this.items[this.head];
+		this.items[this.head] = null; //let the GC collect it
+		this.head++;
+		if(this.head == this.items.length) {
+			this.head = 0;
+		}
+		this.size--;
+		return item;
+	}
+
+	/**
+	 * Move up to maxItems items to the collection.
+	 * Call it holding the lock.
+	 */
+	private int drain(final Collection<? super T> collection, final int maxItems) {
+		final int n = Math.min(maxItems, this.size);
+		for(int i = 0; i < n; i++) {
+			collection.add(remove());
+		}
+		if(n > 0) {
+			this.notFull.signalAll();
+		}
+		return Math.max(n, 0);
+	}
+
+	/**
+	 * Run the tests
+	 * @param args
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+
+		/*
+		 * Non-blocking contract of Queue
+		 */
+		final BoundedBlockingQueue<String> queue = new BoundedBlockingQueue<String>(2);
+		expectTrue(queue.isEmpty() && queue.dequeue() == null, "dequeue() returns null when the queue is empty");
+		expectTrue(!queue.queue(null), "Cannot queue null");
+		expectTrue(queue.queue("a") && queue.queue("b"), "queue until it is full");
+		expectTrue(!queue.queue("c") && queue.size() == 2, "queue() returns false when the queue is full");
+		expectTrue("a".equals(queue.dequeue()) && queue.queue("c"), "FIFO and wrap around");
+		expectTrue(queue.put("d", 10, TimeUnit.MILLISECONDS) == false, "put() times out when the queue is full");
+		expectTrue("b".equals(queue.take()) && "c".equals(queue.take(1, TimeUnit.SECONDS)), "take()");
+		expectTrue(queue.take(10, TimeUnit.MILLISECONDS) == null, "take() times out when the queue is empty");
+
+		/*
+		 * Backpressure policies
+		 */
+		final BoundedBlockingQueue<Integer> newest = new BoundedBlockingQueue<Integer>(2, Backpressure.DROP_NEWEST);
+		newest.put(1);
+		newest.put(2);
+		expectTrue(!newest.put(3) && newest.dropped() == 1 && newest.dequeue() == 1, "DROP_NEWEST discards the new item");
+		final BoundedBlockingQueue<Integer> oldest = new BoundedBlockingQueue<Integer>(2, Backpressure.DROP_OLDEST);
+		oldest.put(1);
+		oldest.put(2);
+		expectTrue(oldest.put(3) && oldest.queue(4) && oldest.dropped() == 2, "DROP_OLDEST makes room");
+		expectTrue(oldest.dequeue() == 3 && oldest.dequeue() == 4, "DROP_OLDEST keeps the newest items");
+		final BoundedBlockingQueue<Integer> reject = new BoundedBlockingQueue<Integer>(1, Backpressure.REJECT);
+		reject.put(1);
+		boolean rejected = false;
+		try {
+			reject.put(2);
+		} catch (IllegalStateException e) {
+			rejected = true;
+		}
+		expectTrue(rejected && reject.size() == 1 && reject.dequeue() == 1, "REJECT throws when the queue is full");
+
+		/*
+		 * Batch draining
+		 */
+		final BoundedBlockingQueue<Integer> batch = new BoundedBlockingQueue<Integer>(8);
+		for(int i = 0; i < 5; i++) {
+			batch.put(i);
+		}
+		final List<Integer> drained = new ArrayList<Integer>();
+		expectTrue(batch.drainTo(drained, 3) == 3 && drained.equals(List.of(0, 1, 2)), "drainTo() a batch");
+		expectTrue(batch.drainTo(drained, 10, 1, TimeUnit.SECONDS) == 2 && batch.isEmpty(), "drainTo() the rest");
+		expectTrue(batch.drainTo(drained, 10, 10, TimeUnit.MILLISECONDS) == 0, "drainTo() times out when the queue is empty");
+
+		/*
+		 * Blocked producers and consumers wake up
+		 */
+		final BoundedBlockingQueue<Integer> pipe = new BoundedBlockingQueue<Integer>(4);
+		final int items = 10_000;
+		final int consumers = 4;
+		final long[] sums = new long[consumers];
+		final Thread producer = new Thread(() -> {
+			try {
+				for(int i = 1; i <= items; i++) {
+					pipe.put(i);
+				}
+				for(int c = 0; c < consumers; c++) {
+					pipe.put(-1); //one stop signal per consumer
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		final Thread[] threads = new Thread[consumers];
+		for(int c = 0; c < consumers; c++) {
+			final int id = c;
+			threads[c] = new Thread(() -> {
+				try {
+					int item;
+					while((item = pipe.take()) != -1) {
+						sums[id] += item;
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			threads[c].start();
+		}
+		producer.start();
+		producer.join();
+		long total = 0;
+		for(int c = 0; c < consumers; c++) {
+			threads[c].join();
+			total += sums[c];
+		}
+		expectTrue(total == (long) items * (items + 1) / 2, "every item is taken exactly once");
+
+		final boolean[] interrupted = new boolean[1];
+		final Thread waiting = new Thread(() -> {
+			try {
+				pipe.take();
+			} catch (InterruptedException e) {
+				interrupted[0] = true;
+			}
+		});
+		waiting.start();
+		//interrupt it only once it is blocked on the empty queue
+		while(waiting.getState() != Thread.State.WAITING) {
+			Thread.yield();
+		}
+		waiting.interrupt();
+		waiting.join();
+		expectTrue(interrupted[0], "take() can be interrupted while it waits");
+	}
+
+	private static void expectTrue(final boolean expectation, final String message) {
+		if(expectation) {
+			System.out.println("Success: " + message);
+		}else {
+			System.err.println("Error: " + message);
+		}
+	}
+
+}
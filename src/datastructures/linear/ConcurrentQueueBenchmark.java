@@ -0,0 +1,249 @@
+package datastructures.linear;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Throughput and latency benchmark of {@code SpscQueue} and
+ * {@code MpmcQueue} against {@code ArrayBlockingQueue} and
+ * {@code ConcurrentLinkedQueue}.
+ * <ul>
+ * 	<li>Throughput: producers send a fixed number of items to consumers,
+ * 	and we report items per second. One producer and one consumer for every
+ * 	queue, then 4 producers and 4 consumers for the queues that allow it.</li>
+ * 	<li>Latency: two threads bounce one item through a pair of queues
+ * 	(ping-pong), and we report the mean time of a round trip.</li>
+ * </ul>
+ * Every queue is measured on its own JVM, forked by {@code main}: with all
+ * the queues on the same JVM the calls through {@code Target} would see
+ * four implementations, and the JIT would stop inlining them for the queues
+ * measured last. Each JVM runs {@code WARMUP} rounds before the measured
+ * one, so the code is compiled when it is measured.
+ * <p>
+ * It is a plain {@code main} without external dependencies, like the rest of
+ * the repository, so the numbers are indicative: run it on an idle machine,
+ * e.g.
+ * <pre>
+ * java -cp bin datastructures.linear.ConcurrentQueueBenchmark 10000000
+ * </pre>
+ * where the optional argument is the number of items of each run.
+ *
+ * @author David Perez
+ *
+ */
+public class ConcurrentQueueBenchmark {
+
+	/**
+	 * Capacity of the bounded queues
+	 */
+	private static final int CAPACITY = 1024;
+
+	/**
+	 * The non-blocking operations measured on every queue
+	 */
+	private interface Target {
+		boolean queue(Integer item);
+		Integer dequeue();
+	}
+
+	/**
+	 * Rounds run and discarded before the measured one
+	 */
+	private static final int WARMUP = 3;
+
+	/**
+	 * The measured queues
+	 */
+	private static final String[] QUEUES = {"SpscQueue", "MpmcQueue", "ArrayBlockingQueue", "ConcurrentLinkedQueue"};
+
+	/**
+	 * Run the benchmark
+	 * @param args optional number of items of each run; the second argument,
+	 * the queue to measure, is only passed to the forked JVMs
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int items = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+		if(args.length > 1) {
+			run(args[1], items);
+			return;
+		}
+
+		final String java = System.getProperty("java.home") + "/bin/java";
+		final String classpath = System.getProperty("java.class.path");
+		for(final String queue : QUEUES) {
+			final Process fork = new ProcessBuilder(java, "-cp", classpath,
+					ConcurrentQueueBenchmark.class.getName(), Integer.toString(items), queue)
+					.inheritIO()
+					.start();
+			if(fork.waitFor() != 0) {
+				System.err.println(queue + " failed with exit code " + fork.exitValue());
+			}
+		}
+	}
+
+	/**
+	 * Measure one queue on this JVM
+	 * @param name one of {@code QUEUES}
+	 * @param items
+	 */
+	private static void run(final String name, final int items) throws InterruptedException {
+		final Supplier<Target> queues = queues(name);
+		final boolean multi = !name.equals("SpscQueue");
+		final int trips = Math.max(1, items / 50);
+		for(int round = 0; round < WARMUP; round++) {
+			throughput(queues.get(), 1, items);
+			if(multi) {
+				throughput(queues.get(), 4, items);
+			}
+			latency(queues, trips);
+		}
+
+		System.out.println(name);
+		System.out.println("  throughput 1P/1C (items/s)           " + throughput(queues.get(), 1, items));
+		if(multi) {
+			System.out.println("  throughput 4P/4C (items/s)           " + throughput(queues.get(), 4, items));
+		}
+		System.out.println("  latency, ping-pong round trip (ns)   " + latency(queues, trips));
+	}
+
+	/**
+	 * Create the queues of the given type
+	 * @param name
+	 * @return
+	 */
+	private static Supplier<Target> queues(final String name) {
+		switch(name) {
+		case "SpscQueue":
+			return () -> {
+				final SpscQueue<Integer> q = new SpscQueue<Integer>(CAPACITY);
+				return target(q::queue, q::dequeue);
+			};
+		case "MpmcQueue":
+			return () -> {
+				final MpmcQueue<Integer> q = new MpmcQueue<Integer>(CAPACITY);
+				return target(q::queue, q::dequeue);
+			};
+		case "ArrayBlockingQueue":
+			return () -> {
+				final ArrayBlockingQueue<Integer> q = new ArrayBlockingQueue<Integer>(CAPACITY);
+				return target(q::offer, q::poll);
+			};
+		case "ConcurrentLinkedQueue":
+			return () -> {
+				final ConcurrentLinkedQueue<Integer> q = new ConcurrentLinkedQueue<Integer>();
+				return target(q::offer, q::poll);
+			};
+		default:
+			throw new IllegalArgumentException("Unknown queue " + name);
+		}
+	}
+
+	/**
+	 * Adapt the methods of a queue
+	 */
+	private static Target target(final Predicate<Integer> queue,
+			final Supplier<Integer> dequeue) {
+		return new Target() {
+			@Override
+			public boolean queue(final Integer item) {
+				return queue.test(item);
+			}
+
+			@Override
+			public Integer dequeue() {
+				return dequeue.get();
+			}
+		};
+	}
+
+	/**
+	 * Send the items from the producers to the consumers
+	 * @param target
+	 * @param pairs number of producers, and of consumers
+	 * @param items
+	 * @return items per second
+	 */
+	private static long throughput(final Target target, final int pairs, final int items)
+			throws InterruptedException {
+		final int perThread = items / pairs;
+		final Integer item = 42; //the same object, to measure the queue and not the boxing
+		final CountDownLatch start = new CountDownLatch(1);
+		final Thread[] threads = new Thread[pairs * 2];
+		for(int i = 0; i < pairs; i++) {
+			threads[i] = new Thread(() -> {
+				await(start);
+				for(int n = 0; n < perThread; n++) {
+					while(!target.queue(item)) {
+						Thread.yield();
+					}
+				}
+			});
+			threads[pairs + i] = new Thread(() -> {
+				await(start);
+				for(int n = 0; n < perThread; n++) {
+					while(target.dequeue() == null) {
+						Thread.yield();
+					}
+				}
+			});
+		}
+		for(final Thread thread : threads) {
+			thread.start();
+		}
+		final long begin = System.nanoTime();
+		start.countDown();
+		for(final Thread thread : threads) {
+			thread.join();
+		}
+		final long elapsed = System.nanoTime() - begin;
+		return (long) perThread * pairs * 1_000_000_000L / elapsed;
+	}
+
+	/**
+	 * Bounce an item between two threads
+	 * @param queues creates the two queues
+	 * @param trips number of round trips
+	 * @return mean round trip in nanoseconds
+	 */
+	private static long latency(final Supplier<Target> queues, final int trips) throws InterruptedException {
+		final Target ping = queues.get();
+		final Target pong = queues.get();
+		final Integer item = 42;
+		final Thread echo = new Thread(() -> {
+			for(int n = 0; n < trips; n++) {
+				Integer received;
+				while((received = ping.dequeue()) == null) {
+					Thread.yield();
+				}
+				while(!pong.queue(received)) {
+					Thread.yield();
+				}
+			}
+		});
+		echo.start();
+		final long begin = System.nanoTime();
+		for(int n = 0; n < trips; n++) {
+			while(!ping.queue(item)) {
+				Thread.yield();
+			}
+			while(pong.dequeue() == null) {
+				Thread.yield();
+			}
+		}
+		final long elapsed = System.nanoTime() - begin;
+		echo.join();
+		return elapsed / trips;
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
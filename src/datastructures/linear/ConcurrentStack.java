@@ -0,0 +1,276 @@
+package datastructures.linear;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free stack for many threads, with the same {@code push}/{@code pop}
+ * contract of {@code Stack}.
+ * <p>
+ * It is the stack of R. Kent Treiber: a linked list whose top is replaced
+ * with a CAS. A push links the new node to the current top and CASes the
+ * top to it; a pop CASes the top to its next node. The nodes are immutable
+ * once published, and the garbage collector prevents the ABA problem (a
+ * node cannot be reused while a thread holds a reference to it).
+ * <p>
+ * Under contention every thread fails CASes on the same top, so there is an
+ * elimination layer (Hendler, Shavit and Yerushalmi): a thread that fails
+ * the CAS tries a random slot of a small array instead, where a push and a
+ * pop can meet and cancel each other without touching the top. A pusher
+ * leaves its node on the slot for a short time; a popper that finds it takes
+ * it with a CAS. If nobody comes, the pusher withdraws the node with a CAS
+ * and tries the top again, so exactly one of them wins the node.
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class ConcurrentStack<T> {
+
+	private static final VarHandle TOP;
+	static {
+		try {
+			TOP = MethodHandles.lookup().findVarHandle(ConcurrentStack.class, "top", Node.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Iterations a pusher waits on an elimination slot for a popper
+	 */
+	private static final int ELIMINATION_SPINS = 64;
+
+	/**
+	 * The node of the stack, immutable once it is published
+	 *
+	 * @param <T>
+	 */
+	private static final class Node<T> {
+		private final T data;
+		private Node<T> next;
+
+		Node(final T data) {
+			this.data = data;
+		}
+	}
+
+	/**
+	 * The top of the stack, only updated with CAS
+	 */
+	@SuppressWarnings("unused")
+	private volatile Node<T> top;
+
+	/**
+	 * Slots where a push and a pop can exchange a node
+	 */
+	private final AtomicReferenceArray<Node<T>> elimination;
+
+	/**
+	 * Create an empty stack with one elimination slot per processor (up to 16)
+	 */
+	public ConcurrentStack() {
+		this(Math.min(16, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Create an empty stack
+	 * @param eliminationSlots size of the elimination array, zero disables it
+	 */
+	public ConcurrentStack(final int eliminationSlots) {
+		if(eliminationSlots < 0) {
+			throw new IllegalArgumentException("Slots cannot be negative, got " + eliminationSlots);
+		}
+		this.elimination = new AtomicReferenceArray<Node<T>>(eliminationSlots);
+	}
+
+	/**
+	 * Pushes an item onto the top of this stack.
+	 * @param data
+	 * @return false if the item is null
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean push(final T data) {
+		if(data == null) {
+			return false;
+		}
+
+		final Node<T> node = new Node<T>(data);
+		while(true) {
+			final Node<T> top = (Node<T>) TOP.getAcquire(this);
+			node.next = top;
+			if(TOP.compareAndSet(this, top, node)) {
+				return true;
+			}
+			if(eliminatePush(node)) {
+				return true; //a pop took it
+			}
+		}
+	}
+
+	/**
+	 * Removes the item at the top of this stack.
+	 * @return the item, or null if the stack is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T pop() {
+		while(true) {
+			final Node<T> top = (Node<T>) TOP.getAcquire(this);
+			if(top == null) {
+				return null;
+			}
+			if(TOP.compareAndSet(this, top, top.next)) {
+				return top.data;
+			}
+			final Node<T> node = eliminatePop();
+			if(node != null) {
+				return node.data; //taken from a push
+			}
+		}
+	}
+
+	/**
+	 * Looks at the item at the top of this stack without removing it.
+	 * @return the item, or null if the stack is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T peek() {
+		final Node<T> top = (Node<T>) TOP.getAcquire(this);
+		return top == null ? null : top.data;
+	}
+
+	/**
+	 * Tests if this stack is empty.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return TOP.getAcquire(this) == null;
+	}
+
+	/**
+	 * Number of items. It walks the stack, so it is O(N), and with
+	 * concurrent threads it is an estimation.
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public int size() {
+		int size = 0;
+		for(Node<T> node = (Node<T>) TOP.getAcquire(this); node != null; node = node.next) {
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Offer the node on a random elimination slot for a while
+	 * @param node
+	 * @return true if a pop took the node
+	 */
+	private boolean eliminatePush(final Node<T> node) {
+		final int slots = this.elimination.length();
+		if(slots == 0) {
+			return false;
+		}
+
+		final int slot = ThreadLocalRandom.current().nextInt(slots);
+		if(!this.elimination.compareAndSet(slot, null, node)) {
+			return false; //busy slot, go back to the top
+		}
+		for(int i = 0; i < ELIMINATION_SPINS; i++) {
+			if(this.elimination.get(slot) != node) {
+				return true;
+			}
+			Thread.onSpinWait();
+		}
+		//withdraw the node; if we can't, a pop took it in the meantime
+		return !this.elimination.compareAndSet(slot, node, null);
+	}
+
+	/**
+	 * Take a node that a push left on a random elimination slot
+	 * @return the node, or null if there was none
+	 */
+	private Node<T> eliminatePop() {
+		final int slots = this.elimination.length();
+		if(slots == 0) {
+			return null;
+		}
+
+		final int slot = ThreadLocalRandom.current().nextInt(slots);
+		final Node<T> node = this.elimination.get(slot);
+		if(node != null && this.elimination.compareAndSet(slot, node, null)) {
+			return node;
+		}
+		return null;
+	}
+
+	/**
+	 * Run the tests
+	 * @param args
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+		final ConcurrentStack<String> stack = new ConcurrentStack<String>();
+		expectTrue(stack.isEmpty() && stack.pop() == null && stack.peek() == null, "pop() returns null when the stack is empty");
+		expectTrue(!stack.push(null), "Cannot push null");
+		stack.push("a");
+		stack.push("b");
+		stack.push("c");
+		expectTrue(stack.size() == 3 && "c".equals(stack.peek()), "push() and peek()");
+		expectTrue("c".equals(stack.pop()) && "b".equals(stack.pop()) && "a".equals(stack.pop()) && stack.isEmpty(), "LIFO order");
+
+		/*
+		 * Many threads pushing and popping: every item is popped exactly
+		 * once, with and without elimination
+		 */
+		for(final int slots : new int[] {0, 4}) {
+			final ConcurrentStack<Integer> shared = new ConcurrentStack<Integer>(slots);
+			final int threads = 8;
+			final int perThread = 20_000;
+			final AtomicIntegerArray seen = new AtomicIntegerArray(threads * perThread);
+			final List<Thread> workers = new ArrayList<Thread>();
+			for(int t = 0; t < threads; t++) {
+				final int first = t * perThread;
+				workers.add(new Thread(() -> {
+					for(int i = first; i < first + perThread; i++) {
+						shared.push(i);
+						if((i & 1) == 1) { //pop one item every two pushes
+							final Integer item = shared.pop();
+							if(item != null) {
+								seen.incrementAndGet(item);
+							}
+						}
+					}
+				}));
+			}
+			for(final Thread worker : workers) {
+				worker.start();
+			}
+			for(final Thread worker : workers) {
+				worker.join();
+			}
+			Integer item;
+			while((item = shared.pop()) != null) {
+				seen.incrementAndGet(item);
+			}
+			boolean once = true;
+			for(int i = 0; i < seen.length(); i++) {
+				once &= seen.get(i) == 1;
+			}
+			expectTrue(once, "every item is popped exactly once, " + slots + " elimination slots");
+		}
+	}
+
+	private static void expectTrue(final boolean expectation, final String message) {
+		if(expectation) {
+			System.out.println("Success: " + message);
+		}else {
+			System.err.println("Error: " + message);
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+package datastructures.linear;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput benchmark of {@code ConcurrentStack}, with and without its
+ * elimination layer, against a {@code Stack} protected by one global lock,
+ * from 1 to 64 threads.
+ * <p>
+ * Each thread runs pairs of {@code push()} and {@code pop()} during a fixed
+ * amount of time, the worst case for the top of the stack and the best case
+ * for the elimination, and we report the total operations per second.
+ * It is a plain {@code main} (no external dependencies, like the rest of the
+ * repository), so the numbers are indicative: run it with a warm JVM and on
+ * an idle machine, e.g.
+ * <pre>
+ * java -cp bin datastructures.linear.ConcurrentStackBenchmark 2000
+ * </pre>
+ * where the optional argument is the measurement time per run in milliseconds.
+ *
+ * @author David Perez
+ *
+ */
+public class ConcurrentStackBenchmark {
+
+	/**
+	 * Thread counts to measure
+	 */
+	private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+	/**
+	 * The operations measured on every stack
+	 */
+	private interface Target {
+		void push(Integer item);
+		Integer pop();
+	}
+
+	/**
+	 * The baseline: one {@code Stack} behind a global lock
+	 */
+	private static class SynchronizedStack implements Target {
+
+		private final Stack<Integer> stack = new Stack<Integer>();
+
+		@Override
+		public synchronized void push(final Integer item) {
+			this.stack.push(item);
+		}
+
+		@Override
+		public synchronized Integer pop() {
+			return this.stack.pop();
+		}
+	}
+
+	/**
+	 * Adapter for {@code ConcurrentStack}
+	 */
+	private static class ConcurrentStackTarget implements Target {
+
+		private final ConcurrentStack<Integer> stack;
+
+		ConcurrentStackTarget(final int eliminationSlots) {
+			this.stack = new ConcurrentStack<Integer>(eliminationSlots);
+		}
+
+		@Override
+		public void push(final Integer item) {
+			this.stack.push(item);
+		}
+
+		@Override
+		public Integer pop() {
+			return this.stack.pop();
+		}
+	}
+
+	/**
+	 * Run the benchmark
+	 * @param args optional measurement time per run, in milliseconds
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+		final long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+		final int slots = Math.min(16, Runtime.getRuntime().availableProcessors());
+
+		System.out.println("threads\tsynchronized Stack\tTreiber\tTreiber+elimination (ops/s)");
+		for(final int threads : THREADS) {
+			final long locked = run(new SynchronizedStack(), threads, millis);
+			final long treiber = run(new ConcurrentStackTarget(0), threads, millis);
+			final long elimination = run(new ConcurrentStackTarget(slots), threads, millis);
+			System.out.println(threads + "\t" + locked + "\t" + treiber + "\t" + elimination);
+		}
+	}
+
+	/**
+	 * Measure one stack with a given number of threads
+	 * @return operations per second
+	 */
+	private static long run(final Target target, final int threads, final long millis)
+			throws InterruptedException {
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final CountDownLatch start = new CountDownLatch(1);
+		final LongAdder operations = new LongAdder();
+		final Integer item = 42; //the same object, to measure the stack and not the boxing
+		final Thread[] workers = new Thread[threads];
+		for(int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				long done = 0;
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				while(running.get()) {
+					target.push(item);
+					target.pop();
+					done += 2;
+				}
+				operations.add(done);
+			});
+			workers[t].start();
+		}
+
+		final long begin = System.nanoTime();
+		start.countDown();
+		Thread.sleep(millis);
+		running.set(false);
+		for(final Thread worker : workers) {
+			worker.join();
+		}
+		final long elapsed = System.nanoTime() - begin;
+		return operations.sum() * 1_000_000_000L / elapsed;
+	}
+
+}
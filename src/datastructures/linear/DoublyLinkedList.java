@@ -0,0 +1,362 @@
+package datastructures.linear;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Doubly linked list that hands out its nodes as handles.
+ * <p>
+ * Removing an element by value is an O(N) scan, but a caller that keeps the
+ * {@code Node} returned by {@code add} can unlink it, or move it to the
+ * front, in O(1). It is the building block of an LRU cache: a hash map
+ * from the key to the node, and this list ordered by the last access.
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class DoublyLinkedList<T> implements Iterable<T> {
+
+	/**
+	 * A node of the list, and the handle of its element
+	 *
+	 * @param <T>
+	 */
+	public static final class Node<T> {
+		private final T data;
+		private Node<T> previous;
+		private Node<T> next;
+
+		/**
+		 * The list of the node, null once it is unlinked
+		 */
+		private DoublyLinkedList<T> list;
+
+		private Node(final T data, final DoublyLinkedList<T> list) {
+			this.data = data;
+			this.list = list;
+		}
+
+		public T getData() {
+			return this.data;
+		}
+
+		/**
+		 * Returns true if the node was not unlinked yet
+		 * @return
+		 */
+		public boolean isLinked() {
+			return this.list != null;
+		}
+	}
+
+	private Node<T> first;
+	private Node<T> last;
+	private int size;
+
+	/**
+	 * Appends the element to the end of this list. O(1).
+	 * @param data
+	 * @return the handle of the element, or null if the element is null
+	 */
+	public Node<T> add(final T data) {
+		if(data == null) {
+			return null;
+		}
+
+		final Node<T> node = new Node<T>(data, this);
+		linkLast(node);
+		return node;
+	}
+
+	/**
+	 * Inserts the element at the beginning of this list. O(1).
+	 * @param data
+	 * @return the handle of the element, or null if the element is null
+	 */
+	public Node<T> addFirst(final T data) {
+		if(data == null) {
+			return null;
+		}
+
+		final Node<T> node = new Node<T>(data, this);
+		linkFirst(node);
+		return node;
+	}
+
+	/**
+	 * Removes the node from this list. O(1).
+	 * @param node
+	 * @return false if the node is null or it is not on this list (e.g. it
+	 * was already unlinked)
+	 */
+	public boolean unlink(final Node<T> node) {
+		if(node == null || node.list != this) {
+			return false;
+		}
+
+		detach(node);
+		node.list = null;
+		return true;
+	}
+
+	/**
+	 * Moves the node to the beginning of this list. O(1).
+	 * @param node
+	 * @return false if the node is null or it is not on this list
+	 */
+	public boolean moveToFront(final Node<T> node) {
+		if(node == null || node.list != this) {
+			return false;
+		}
+
+		if(node != this.first) {
+			detach(node);
+			linkFirst(node);
+		}
+		return true;
+	}
+
+	/**
+	 * Moves the node to the end of this list. O(1).
+	 * @param node
+	 * @return false if the node is null or it is not on this list
+	 */
+	public boolean moveToBack(final Node<T> node) {
+		if(node == null || node.list != this) {
+			return false;
+		}
+
+		if(node != this.last) {
+			detach(node);
+			linkLast(node);
+		}
+		return true;
+	}
+
+	/**
+	 * The first node, without removing it
+	 * @return the node, or null if the list is empty
+	 */
+	public Node<T> first() {
+		return this.first;
+	}
+
+	/**
+	 * The last node, without removing it
+	 * @return the node, or null if the list is empty
+	 */
+	public Node<T> last() {
+		return this.last;
+	}
+
+	/**
+	 * Removes and returns the first element. O(1).
+	 * @return the element, or null if the list is empty
+	 */
+	public T removeFirst() {
+		final Node<T> node = this.first;
+		return unlink(node) ? node.data : null;
+	}
+
+	/**
+	 * Removes and returns the last element (e.g. the least recently used
+	 * element of an LRU cache). O(1).
+	 * @return the element, or null if the list is empty
+	 */
+	public T removeLast() {
+		final Node<T> node = this.last;
+		return unlink(node) ? node.data : null;
+	}
+
+	/**
+	 * Removes the first occurrence of the specified element
+	 * from this list, if it is present. O(N).
+	 * @param data
+	 * @return true if the element was found
+	 */
+	public boolean remove(final T data) {
+		if(data == null) {
+			return false;
+		}
+
+		for(Node<T> node = this.first; node != null; node = node.next) {
+			if(node.data.equals(data)) {
+				return unlink(node);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes every element that satisfies the predicate, in a single pass
+	 * @param filter
+	 * @return number of removed elements
+	 */
+	public int removeIf(final Predicate<? super T> filter) {
+		int removed = 0;
+		Node<T> node = this.first;
+		while(node != null) {
+			final Node<T> next = node.next;
+			if(filter.test(node.data)) {
+				unlink(node);
+				removed++;
+			}
+			node = next;
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns the number of elements in this list. O(1).
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if this list contains no elements.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Iterates the elements from the first to the last
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private Node<T> next = DoublyLinkedList.this.first;
+
+			@Override
+			public boolean hasNext() {
+				return this.next != null;
+			}
+
+			@Override
+			public T next() {
+				if(this.next == null) {
+					throw new NoSuchElementException();
+				}
+				final T data = this.next.data;
+				this.next = this.next.next;
+				return data;
+			}
+		};
+	}
+
+	private void linkFirst(final Node<T> node) {
+		node.previous = null;
+		node.next = this.first;
+		if(this.first == null) {
+			this.last = node;
+		}else {
+			this.first.previous = node;
+		}
+		this.first = node;
+		this.size++;
+	}
+
+	private void linkLast(final Node<T> node) {
+		node.next = null;
+		node.previous = this.last;
+		if(this.last == null) {
+			this.first = node;
+		}else {
+			this.last.next = node;
+		}
+		this.last = node;
+		this.size++;
+	}
+
+	/**
+	 * Take the node out of the chain, keeping its ownership
+	 * @param node
+	 */
+	private void detach(final Node<T> node) {
+		if(node.previous == null) {
+			this.first = node.next;
+		}else {
+			node.previous.next = node.next;
+		}
+		if(node.next == null) {
+			this.last = node.previous;
+		}else {
+			node.next.previous = node.previous;
+		}
+		node.previous = null;
+		node.next = null;
+		this.size--;
+	}
+
+	/**
+	 * Run the tests
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		final DoublyLinkedList<String> list = new DoublyLinkedList<String>();
+		expectTrue(list.isEmpty() && list.removeFirst() == null && list.removeLast() == null, "List is empty");
+		expectTrue(list.add(null) == null && !list.unlink(null), "Expect failure of null additions and removals");
+
+		final Node<String> b = list.add("b");
+		final Node<String> a = list.addFirst("a");
+		final Node<String> c = list.add("c");
+		expectTrue(toString(list).equals("abc") && list.size() == 3, "add() and addFirst()");
+		expectTrue(list.unlink(b) && !b.isLinked() && toString(list).equals("ac"), "unlink() a middle node");
+		expectTrue(!list.unlink(b), "cannot unlink a node twice");
+		expectTrue(!new DoublyLinkedList<String>().unlink(a), "cannot unlink a node of another list");
+		expectTrue(list.moveToFront(c) && toString(list).equals("ca") && list.first() == c && list.last() == a, "moveToFront()");
+		expectTrue(list.moveToBack(c) && toString(list).equals("ac"), "moveToBack()");
+		expectTrue(list.unlink(c) && list.last() == a && list.unlink(a) && list.isEmpty() && list.first() == null,
+				"unlink() the edges until empty");
+
+		list.add("x");
+		list.add("y");
+		list.add("x");
+		expectTrue(list.remove("x") && toString(list).equals("yx"), "remove() the first occurrence");
+		expectTrue(list.removeIf("x"::equals) == 1 && toString(list).equals("y"), "removeIf()");
+		expectTrue("y".equals(list.removeLast()) && list.isEmpty(), "removeLast()");
+
+		/*
+		 * LRU cache of capacity 2: touched entries move to the front,
+		 * and the last one is evicted
+		 */
+		final Map<String, Node<String>> cache = new HashMap<String, Node<String>>();
+		final DoublyLinkedList<String> lru = new DoublyLinkedList<String>();
+		for(final String key : new String[] {"k1", "k2", "k1", "k3"}) {
+			final Node<String> node = cache.get(key);
+			if(node != null) {
+				lru.moveToFront(node);
+			}else {
+				if(lru.size() == 2) {
+					cache.remove(lru.removeLast());
+				}
+				cache.put(key, lru.addFirst(key));
+			}
+		}
+		expectTrue(toString(lru).equals("k3k1") && !cache.containsKey("k2"), "LRU eviction with node handles");
+	}
+
+	private static String toString(final DoublyLinkedList<String> list) {
+		final StringBuilder sb = new StringBuilder();
+		for(final String s : list) {
+			sb.append(s);
+		}
+		return sb.toString();
+	}
+
+	private static void expectTrue(final boolean expectation, final String message) {
+		if(expectation) {
+			System.out.println("Success: " + message);
+		}else {
+			System.err.println("Error: " + message);
+		}
+	}
+
+}
@@ -0,0 +1,182 @@
+package datastructures.linear;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Queue of primitive ints, i.e. {@code Queue<Integer>} without boxing.
+ * Like {@code Queue}, it is a circular array whose length is a power of two.
+ * Useful for graph traversals, where the queue holds vertex indexes.
+ * 
+ * @author David Perez
+ *
+ */
+public class IntQueue {
+	
+	/**
+	 * Biggest power of two that fits on an array
+	 */
+	public static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * The circular array with the items
+	 */
+	private int[] items;
+	
+	/**
+	 * Index of the first item of the queue (the candidate for dequeue)
+	 */
+	private int head;
+	
+	/**
+	 * Number of items on the queue
+	 */
+	private int size;
+	
+	/**
+	 * Create an empty queue
+	 */
+	public IntQueue() {
+		this(16);
+	}
+	
+	/**
+	 * Create an empty queue with space for the given number of items
+	 * before growing the array
+	 * @param initialCapacity
+	 */
+	public IntQueue(final int initialCapacity) {
+		this.items = new int[powerOfTwo(initialCapacity)];
+	}
+	
+	/**
+	 * Returns true only if the queue is empty.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	/**
+	 * Get the size of the queue
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * Queue an item
+	 * @param data
+	 */
+	public void queue(final int data) {
+		if(this.size == this.items.length) {
+			grow();
+		}
+		this.items[(this.head + this.size) & (this.items.length - 1)] = data;
+		this.size++;
+	}
+	
+	/**
+	 * Dequeue an item
+	 * @return
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public int dequeue() {
+		if(this.size == 0) {
+			throw new NoSuchElementException("Queue is empty");
+		}
+		final int item = this.items[this.head];
+		this.head = (this.head + 1) & (this.items.length - 1);
+		this.size--;
+		return item;
+	}
+	
+	/**
+	 * Remove all the items, keeping the array to reuse it
+	 */
+	public void clear() {
+		this.head = 0;
+		this.size = 0;
+	}
+	
+	/**
+	 * Double the array, moving the items to the beginning of the new array
+	 * @throws IllegalStateException if the array is already at {@code MAX_CAPACITY}
+	 */
+	private void grow() {
+		if(this.items.length == MAX_CAPACITY) {
+			throw new IllegalStateException("Queue is full, the capacity cannot grow beyond " + MAX_CAPACITY);
+		}
+		final int[] grown = new int[this.items.length * 2];
+		final int firstPart = this.items.length - this.head;
+		System.arraycopy(this.items, this.head, grown, 0, firstPart);
+		System.arraycopy(this.items, 0, grown, firstPart, this.head);
+		this.items = grown;
+		this.head = 0;
+	}
+	
+	/**
+	 * Smallest power of two that is greater or equal than the capacity
+	 * @param capacity
+	 * @return
+	 */
+	private static int powerOfTwo(final int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative, got " + capacity);
+		}
+		if(capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Capacity too big, got " + capacity + ", max " + MAX_CAPACITY);
+		}
+		return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+	}
+	
+	/**
+	 * Run the tests
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		final IntQueue queue = new IntQueue(2);
+		expectTrue(queue.isEmpty() && queue.size() == 0, "starts empty");
+		try {
+			queue.dequeue();
+			expectTrue(false, "dequeue() of an empty queue should fail");
+		} catch (NoSuchElementException e) {
+			expectTrue(true, "dequeue() of an empty queue fails");
+		}
+		
+		boolean fifo = true;
+		int next = 0;
+		for(int i = 0; i < 100; i++) {
+			queue.queue(i);
+			if(i % 3 == 0) {
+				fifo &= queue.dequeue() == next;
+				next++;
+			}
+		}
+		expectTrue(queue.size() == 100 - next, "size() after wrapping around and growing");
+		while(!queue.isEmpty()) {
+			fifo &= queue.dequeue() == next;
+			next++;
+		}
+		expectTrue(fifo && next == 100, "FIFO order after wrapping around and growing");
+		
+		queue.queue(7);
+		queue.clear();
+		expectTrue(queue.isEmpty(), "clear()");
+		try {
+			new IntQueue(MAX_CAPACITY + 1);
+			expectTrue(false, "a capacity over MAX_CAPACITY should fail");
+		} catch (IllegalArgumentException e) {
+			expectTrue(true, "a capacity over MAX_CAPACITY fails");
+		}
+	}
+
+	private static void expectTrue(final boolean expectation, final String message) {
+		if(expectation) {
+			System.out.println("Success: " + message);
+		}else {
+			System.err.println("Error: " + message);
+		}
+	}
+
+}
@@ -0,0 +1,258 @@
+package datastructures.linear;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Stack of primitive ints, i.e. {@code Stack<Integer>} without boxing.
+ * Like {@code Stack}, it is a growable array that halves when a pop leaves
+ * it a quarter full. Useful for iterative graph traversals, where the stack
+ * holds vertex indexes.
+ *
+ * @author David Perez
+ *
+ */
+public class IntStack {
+
+	/**
+	 * The items, the top is at {@code size - 1}
+	 */
+	private int[] items;
+
+	/**
+	 * Number of items on the stack
+	 */
+	private int size;
+
+	/**
+	 * Capacity of the constructor, the floor of {@code trimToSize()}
+	 */
+	private final int initialCapacity;
+
+	/**
+	 * The array never shrinks below this capacity: the initial capacity,
+	 * or the last capacity reserved with {@code ensureCapacity}
+	 */
+	private int minCapacity;
+
+	/**
+	 * Create an empty stack
+	 */
+	public IntStack() {
+		this(16);
+	}
+
+	/**
+	 * Create an empty stack with space for the given number of items
+	 * before growing the array
+	 * @param initialCapacity
+	 */
+	public IntStack(final int initialCapacity) {
+		if(initialCapacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative, got " + initialCapacity);
+		}
+		this.initialCapacity = Math.max(1, initialCapacity);
+		this.minCapacity = this.initialCapacity;
+		this.items = new int[this.initialCapacity];
+	}
+
+	/**
+	 * Returns true only if the stack is empty.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Get the size of the stack
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Push an item
+	 * @param data
+	 */
+	public void push(final int data) {
+		if(this.size == this.items.length) {
+			grow(this.size + 1);
+		}
+		this.items[this.size++] = data;
+	}
+
+	/**
+	 * Push the items of {@code data[from, to)} in order (so
+	 * {@code data[to - 1]} ends on the top). The array grows at most once.
+	 * @param data
+	 * @param from
+	 * @param to
+	 */
+	public void pushAll(final int[] data, final int from, final int to) {
+		final int count = to - from;
+		grow(this.size + count);
+		System.arraycopy(data, from, this.items, this.size, count);
+		this.size += count;
+	}
+
+	/**
+	 * Pop an item
+	 * @return
+	 * @throws NoSuchElementException if the stack is empty
+	 */
+	public int pop() {
+		if(this.size == 0) {
+			throw new NoSuchElementException("Stack is empty");
+		}
+		final int item = this.items[--this.size];
+		shrink();
+		return item;
+	}
+
+	/**
+	 * Pop up to n items into {@code destination}, the top first
+	 * @param destination
+	 * @param n
+	 * @return number of popped items
+	 */
+	public int popN(final int[] destination, final int n) {
+		final int count = Math.max(0, Math.min(Math.min(n, destination.length), this.size));
+		for(int i = 0; i < count; i++) {
+			destination[i] = this.items[this.size - 1 - i];
+		}
+		this.size -= count;
+		shrink();
+		return count;
+	}
+
+	/**
+	 * Look at the top without removing it
+	 * @return
+	 * @throws NoSuchElementException if the stack is empty
+	 */
+	public int peek() {
+		if(this.size == 0) {
+			throw new NoSuchElementException("Stack is empty");
+		}
+		return this.items[this.size - 1];
+	}
+
+	/**
+	 * Remove all the items, keeping the array to reuse it
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * Make room for at least the given number of items
+	 * <p>
+	 * The capacity is reserved: pops don't shrink the array below it, so a
+	 * stack sized for a traversal keeps its array between traversals. Call
+	 * {@code trimToSize()} to release it.
+	 * @param capacity
+	 */
+	public void ensureCapacity(final int capacity) {
+		this.minCapacity = Math.max(this.minCapacity, capacity);
+		grow(capacity);
+	}
+
+	/**
+	 * Make room for at least the given number of items, doubling the array
+	 * @param capacity
+	 */
+	private void grow(final int capacity) {
+		if(capacity > this.items.length) {
+			final int doubled = this.items.length > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE - 8 : this.items.length * 2;
+			this.items = Arrays.copyOf(this.items, Math.max(capacity, doubled));
+		}
+	}
+
+	/**
+	 * Shrink the array to the number of items (or the initial capacity),
+	 * releasing the capacity reserved with {@code ensureCapacity}
+	 */
+	public void trimToSize() {
+		this.minCapacity = this.initialCapacity;
+		final int capacity = Math.max(this.size, this.minCapacity);
+		if(capacity < this.items.length) {
+			this.items = Arrays.copyOf(this.items, capacity);
+		}
+	}
+
+	/**
+	 * Length of the array of items
+	 * @return
+	 */
+	public int capacity() {
+		return this.items.length;
+	}
+
+	/**
+	 * Halve the array while it is a quarter full (more than once after a
+	 * popN), copying the items only once. It never goes below
+	 * {@code minCapacity}.
+	 */
+	private void shrink() {
+		int capacity = this.items.length;
+		while(this.size <= capacity / 4 && capacity > this.minCapacity) {
+			capacity = Math.max(capacity / 2, this.minCapacity);
+		}
+		if(capacity < this.items.length) {
+			this.items = Arrays.copyOf(this.items, capacity);
+		}
+	}
+
+	/**
+	 * Run the tests
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		final IntStack stack = new IntStack(2);
+		expectTrue(stack.isEmpty() && stack.size() == 0, "starts empty");
+		try {
+			stack.pop();
+			expectTrue(false, "pop() of an empty stack should fail");
+		} catch (NoSuchElementException e) {
+			expectTrue(true, "pop() of an empty stack fails");
+		}
+
+		for(int i = 0; i < 100; i++) {
+			stack.push(i);
+		}
+		boolean lifo = stack.peek() == 99;
+		for(int i = 99; i >= 50; i--) {
+			lifo &= stack.pop() == i;
+		}
+		expectTrue(lifo && stack.size() == 50, "LIFO order after growing");
+
+		stack.pushAll(new int[] {-1, 100, 101, 102, -1}, 1, 4);
+		final int[] popped = new int[4];
+		expectTrue(stack.popN(popped, 4) == 4 && Arrays.equals(popped, new int[] {102, 101, 100, 49}), "pushAll() and popN()");
+		expectTrue(stack.popN(new int[1000], 1000) == 49 && stack.isEmpty(), "popN() more items than the size");
+		expectTrue(stack.capacity() == 2, "the array shrinks back to the initial capacity");
+
+		stack.ensureCapacity(64);
+		expectTrue(stack.capacity() >= 64, "ensureCapacity()");
+		stack.pushAll(new int[200], 0, 200);
+		stack.popN(new int[200], 200);
+		expectTrue(stack.capacity() >= 64, "popN() doesn't shrink below the reserved capacity");
+		stack.push(7);
+		stack.trimToSize();
+		expectTrue(stack.capacity() == 2 && stack.pop() == 7, "trimToSize()");
+		stack.push(1);
+		stack.clear();
+		expectTrue(stack.isEmpty(), "clear()");
+	}
+
+	private static void expectTrue(final boolean expectation, final String message) {
+		if(expectation) {
+			System.out.println("Success: " + message);
+		}else {
+			System.err.println("Error: " + message);
+		}
+	}
+
+}
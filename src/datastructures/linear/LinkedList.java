@@ -1,5 +1,9 @@
 package datastructures.linear;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
 /**
  * My linked list implementation
  * 
@@ -7,11 +11,21 @@ package datastructures.linear;
  *
  * @param <T>
  */
-public class LinkedList <T> {
+public class LinkedList <T> implements Iterable<T> {
 	/**
 	 * The head node of the linked list
 	 */
 	private LinkedListNode<T> first;
+
+	/**
+	 * The tail node of the linked list, so appends don't walk the list
+	 */
+	private LinkedListNode<T> last;
+
+	/**
+	 * Number of elements, so size() doesn't walk the list
+	 */
+	private int size;
 	
 	/**
 	 * The linked list node
@@ -36,7 +50,7 @@ public class LinkedList <T> {
 	}
 		
 	/**
-	 * Appends the specified element to the end of this list.
+	 * Appends the specified element to the end of this list. O(1).
 	 * @param data
 	 */
 	public boolean add(final T data) {
@@ -48,37 +62,98 @@ public class LinkedList <T> {
 
 		if(this.first == null) {
 			this.first = end;
-			return true;
+		}else {
+			this.last.next = end;
+		}
+		this.last = end;
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Inserts the specified element at the beginning of this list. O(1).
+	 * @param data
+	 * @return false if the element is null
+	 */
+	public boolean addFirst(final T data) {
+		if(data == null) {
+			return false;
+		}
+
+		final LinkedListNode<T> node = new LinkedListNode<T>(data);
+		node.next = this.first;
+		this.first = node;
+		if(this.last == null) {
+			this.last = node;
+		}
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Removes and returns the first element of this list. O(1).
+	 * @return the first element, or null if the list is empty
+	 */
+	public T removeFirst() {
+		if(this.first == null) {
+			return null;
+		}
+
+		final T data = this.first.data;
+		this.first = this.first.next;
+		if(this.first == null) {
+			this.last = null;
+		}
+		this.size--;
+		return data;
+	}
+
+	/**
+	 * Returns the element at the specified position. O(i).
+	 * @param index
+	 * @return
+	 * @throws IndexOutOfBoundsException if the index is not on [0, size)
+	 */
+	public T get(final int index) {
+		if(index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		}
+
+		if(index == this.size - 1) {
+			return this.last.data;
 		}
-		
 		LinkedListNode<T> node = this.first;
-		while(node.next != null) {
+		for(int i = 0; i < index; i++) {
 			node = node.next;
 		}
-		node.next = end;
-		return true;
+		return node.data;
 	}
-	
+
 	/**
 	 * Removes the first occurrence of the specified element 
-	 * from this list, if it is present.
+	 * from this list, if it is present. O(N); for O(1) removals keep the
+	 * node handles of a {@code DoublyLinkedList}.
 	 * @param data
-	 * @return
+	 * @return true if the element was found
 	 */
-	private boolean remove(final String data) {
-		if(this.first == null) {
+	public boolean remove(final T data) {
+		if(this.first == null || data == null) {
 			return false;
 		}
 		
 		if(this.first.data.equals(data)) {
-			this.first = this.first.next;
+			removeFirst();
 			return true;
 		}
 		
 		LinkedListNode<T> node = this.first;
 		while(node.next != null) {
 			if(node.next.data.equals(data)) {
+				if(node.next == this.last) {
+					this.last = node;
+				}
 				node.next = node.next.next;
+				this.size--;
 				return true;
 			}
 			node = node.next;
@@ -87,6 +162,52 @@ public class LinkedList <T> {
 		return false;
 	}
 
+	/**
+	 * Removes every element that satisfies the predicate, in a single pass.
+	 * A run of consecutive removed nodes is unlinked at once when the run
+	 * ends, writing only the link of the last kept node, so the kept nodes
+	 * are not written. The size is updated with each run: if the predicate
+	 * throws, the runs already unlinked stay removed and the list is valid.
+	 * @param filter
+	 * @return number of removed elements
+	 */
+	public int removeIf(final Predicate<? super T> filter) {
+		int removed = 0;
+		LinkedListNode<T> kept = null; //last node that stays on the list
+		LinkedListNode<T> node = this.first;
+		while(node != null) {
+			if(!filter.test(node.data)) {
+				kept = node;
+				node = node.next;
+				continue;
+			}
+
+			//a run of removed nodes, up to the next kept node
+			int run = 1;
+			LinkedListNode<T> end = node.next;
+			while(end != null && filter.test(end.data)) {
+				run++;
+				end = end.next;
+			}
+			if(kept == null) {
+				this.first = end;
+			}else {
+				kept.next = end;
+			}
+			if(end == null) {
+				this.last = kept;
+			}
+			this.size -= run;
+			removed += run;
+			if(end == null) {
+				break;
+			}
+			kept = end;
+			node = end.next;
+		}
+		return removed;
+	}
+
 	/**
 	 * Retrieves, but does not remove, the head (first element) of this list.
 	 * @return
@@ -100,26 +221,11 @@ public class LinkedList <T> {
 	}
 
 	/**
-	 * Returns the number of elements in this list.
+	 * Returns the number of elements in this list. O(1).
 	 * @return
 	 */
 	public int size() {
-		int counter = 0;
-		
-		if(this.first == null) {
-			return counter;
-		}
-		
-
-		LinkedListNode<T> node = this.first;
-		counter++;
-
-		while(node.next != null) {
-			counter++;
-			node = node.next;
-		}
-		
-		return counter;
+		return this.size;
 	}
 
 	/**
@@ -127,7 +233,32 @@ public class LinkedList <T> {
 	 * @return
 	 */
 	public boolean isEmpty() {
-		return this.size() == 0;
+		return this.size == 0;
+	}
+
+	/**
+	 * Iterates the elements from the first to the last
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private LinkedListNode<T> next = LinkedList.this.first;
+
+			@Override
+			public boolean hasNext() {
+				return this.next != null;
+			}
+
+			@Override
+			public T next() {
+				if(this.next == null) {
+					throw new NoSuchElementException();
+				}
+				final T data = this.next.data;
+				this.next = this.next.next;
+				return data;
+			}
+		};
 	}
 
 	/**
@@ -171,7 +302,87 @@ public class LinkedList <T> {
 		expectTrue(!list.isEmpty(), "List is not empty");
 		
 		expectTrue(!list.remove("random item"), "Try to remove an item that did not exist");
-		
+
+		/*
+		 * Tail pointer, addFirst, removeFirst, get and iteration
+		 */
+		final LinkedList<String> deque = new LinkedList<String>();
+		expectTrue(deque.removeFirst() == null, "removeFirst() returns null when the list is empty");
+		deque.add("b");
+		deque.addFirst("a");
+		deque.add("c");
+		expectTrue(!deque.addFirst(null), "Expect failure of null additions at the beginning");
+		expectEqual(deque.get(0) + deque.get(1) + deque.get(2), "abc", "get() by position");
+		try {
+			deque.get(3);
+			expectTrue(false, "get() out of bounds should throw");
+		} catch (IndexOutOfBoundsException e) {
+			expectTrue(true, "get() out of bounds throws");
+		}
+		deque.remove("c");
+		deque.add("d");
+		expectEqual(deque.get(2), "d", "append after removing the last element");
+		final StringBuilder sb = new StringBuilder();
+		for(final String s : deque) {
+			sb.append(s);
+		}
+		expectEqual(sb.toString(), "abd", "iterate in order");
+		expectEqual(deque.removeFirst(), "a", "removeFirst()");
+		deque.removeFirst();
+		deque.removeFirst();
+		expectTrue(deque.isEmpty() && !deque.iterator().hasNext(), "empty after removing everything");
+		deque.add("e");
+		expectTrue(deque.size() == 1 && "e".equals(deque.get(0)), "append after emptying the list");
+
+		final LinkedList<Integer> big = new LinkedList<Integer>();
+		final int n = 1_000_000;
+		for(int i = 0; i < n; i++) {
+			big.add(i);
+		}
+		long sum = 0;
+		for(final int i : big) {
+			sum += i;
+		}
+		expectTrue(big.size() == n && sum == (long) n * (n - 1) / 2, "append a million elements in linear time");
+
+		/*
+		 * Generic removals
+		 */
+		expectTrue(big.remove(n - 1) && big.add(-1) && big.get(n - 1) == -1, "remove the last element by value");
+		expectTrue(!big.remove((Integer) null), "Cannot remove null");
+		expectTrue(big.removeIf(i -> i % 2 == 0) == n / 2, "removeIf() the even elements");
+		boolean odd = true;
+		for(final int i : big) {
+			odd &= i % 2 != 0;
+		}
+		expectTrue(odd && big.size() == n / 2 && big.get(0) == 1, "only the odd elements are left");
+		big.removeIf(i -> i > 0);
+		expectTrue(big.size() == 1 && big.get(0) == -1 && big.add(7) && big.get(1) == 7, "removeIf() a run up to the last element");
+		expectTrue(big.removeIf(i -> true) == 2 && big.isEmpty() && big.add(3) && big.get(0) == 3, "removeIf() everything");
+
+		final LinkedList<Integer> failing = new LinkedList<Integer>();
+		for(int i = 0; i < 10; i++) {
+			failing.add(i);
+		}
+		try {
+			failing.removeIf(i -> {
+				if(i == 6) {
+					throw new IllegalStateException("Predicate failed");
+				}
+				return i == 1 || i == 2 || i == 5;
+			});
+			expectTrue(false, "removeIf() should throw what the predicate throws");
+		} catch (IllegalStateException e) {
+			final StringBuilder left = new StringBuilder();
+			int count = 0;
+			for(final int i : failing) {
+				left.append(i);
+				count++;
+			}
+			failing.add(10);
+			expectTrue("03456789".equals(left.toString()) && count == failing.size() - 1 && failing.get(failing.size() - 1) == 10,
+					"a failing predicate leaves the list valid, with the finished runs removed");
+		}
 	}
 	
 	/**
@@ -0,0 +1,113 @@
+package datastructures.linear;
+
+import java.util.function.IntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Iteration and memory benchmark of {@code UnrolledLinkedList} against
+ * {@code LinkedList} (one node per element).
+ * <ul>
+ * 	<li>Iteration: sum every element of the list with its iterator, and
+ * 	report the mean nanoseconds per element</li>
+ * 	<li>Memory: heap used by the list after a GC, divided by the number of
+ * 	elements. The elements are cached {@code Integer} objects shared by every
+ * 	list, so only the structure of the list is measured.</li>
+ * </ul>
+ * It is a plain {@code main} without external dependencies, like the rest of
+ * the repository, so the numbers are indicative: run it on an idle machine,
+ * e.g.
+ * <pre>
+ * java -cp bin datastructures.linear.LinkedListBenchmark 1000000
+ * </pre>
+ * where the optional argument is the number of elements of each list.
+ *
+ * @author David Perez
+ *
+ */
+public class LinkedListBenchmark {
+
+	/**
+	 * Warm up and measured rounds of the iteration
+	 */
+	private static final int ROUNDS = 10;
+
+	/**
+	 * Run the benchmark
+	 * @param args optional number of elements
+	 */
+	public static void main(final String[] args) {
+		final int elements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		final Integer[] values = new Integer[elements];
+		for(int i = 0; i < elements; i++) {
+			values[i] = i & 127; //cached Integer objects
+		}
+
+		System.out.println("list                     ns/element  bytes/element");
+		report("LinkedList", elements, n -> {
+			final LinkedList<Integer> list = new LinkedList<Integer>();
+			for(int i = 0; i < n; i++) {
+				list.add(values[i]);
+			}
+			return list;
+		}, list -> {
+			long sum = 0;
+			for(final int value : list) {
+				sum += value;
+			}
+			return sum;
+		});
+		for(final int blockCapacity : new int[] {16, 32, 64}) {
+			report("UnrolledLinkedList(" + blockCapacity + ")", elements, n -> {
+				final UnrolledLinkedList<Integer> list = new UnrolledLinkedList<Integer>(blockCapacity);
+				for(int i = 0; i < n; i++) {
+					list.add(values[i]);
+				}
+				return list;
+			}, list -> {
+				long sum = 0;
+				for(final int value : list) {
+					sum += value;
+				}
+				return sum;
+			});
+		}
+	}
+
+	/**
+	 * Build a list, measure its memory and its iteration
+	 * @param name
+	 * @param elements
+	 * @param factory builds a list of the given size
+	 * @param sum iterates the list. Each list type has its own loop, so the
+	 * JIT sees only one iterator class on it. It is a function so no iterator
+	 * is left on this frame, keeping the list reachable.
+	 */
+	private static <L> void report(final String name, final int elements,
+			final IntFunction<L> factory, final ToLongFunction<L> sum) {
+		L list = factory.apply(elements);
+
+		long best = Long.MAX_VALUE;
+		long checksum = 0;
+		for(int round = 0; round < ROUNDS; round++) {
+			final long begin = System.nanoTime();
+			checksum += sum.applyAsLong(list);
+			best = Math.min(best, System.nanoTime() - begin);
+		}
+
+		//heap used with the list alive, minus the heap used once it is garbage
+		final long alive = usedMemory();
+		list = null;
+		final long bytes = alive - usedMemory();
+		System.out.printf("%-24s %10.2f %14.1f   (checksum %d)%n", name,
+				(double) best / elements, (double) bytes / elements, checksum);
+	}
+
+	private static long usedMemory() {
+		final Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
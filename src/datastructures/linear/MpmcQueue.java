@@ -0,0 +1,279 @@
+package datastructures.linear;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Padding before the index used by the producers
+ * (see {@code SpscQueuePad0})
+ */
+abstract class MpmcQueuePad0 {
+	long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class MpmcQueueTailField extends MpmcQueuePad0 {
+	/**
+	 * Position of the next item to queue
+	 */
+	volatile long tail;
+}
+
+abstract class MpmcQueuePad1 extends MpmcQueueTailField {
+	long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class MpmcQueueHeadField extends MpmcQueuePad1 {
+	/**
+	 * Position of the next item to dequeue
+	 */
+	volatile long head;
+}
+
+abstract class MpmcQueuePad2 extends MpmcQueueHeadField {
+	long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
+/**
+ * Bounded multi-producer/multi-consumer lock-free queue, with the same
+ * {@code queue}/{@code dequeue} contract of {@code Queue}.
+ * <p>
+ * It is the algorithm of Dmitry Vyukov: each slot of the ring buffer has a
+ * sequence number that says who can use it next. For the position
+ * {@code pos}:
+ * <ul>
+ * 	<li>{@code sequence == pos}: the slot is free, a producer can claim it
+ * 	by moving {@code tail} from {@code pos} to {@code pos+1} with a CAS</li>
+ * 	<li>{@code sequence == pos+1}: the slot has an item, a consumer can claim
+ * 	it by moving {@code head} with a CAS</li>
+ * </ul>
+ * After writing (or reading) the slot, the thread publishes the next
+ * sequence number, so the threads only compete on the CAS of the index, and
+ * never wait for a lock.
+ * <p>
+ * More info <a href="https://www.1024cores.net/home/lock-free-algorithms/queues/bounded-mpmc-queue">here</a>
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class MpmcQueue<T> extends MpmcQueuePad2 {
+
+	private static final VarHandle TAIL;
+	private static final VarHandle HEAD;
+	private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+	static {
+		try {
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			TAIL = lookup.findVarHandle(MpmcQueueTailField.class, "tail", long.class);
+			HEAD = lookup.findVarHandle(MpmcQueueHeadField.class, "head", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Sequence number of each slot
+	 */
+	private final long[] sequences;
+
+	/**
+	 * The ring buffer
+	 */
+	private final Object[] items;
+
+	/**
+	 * Capacity minus one, to wrap the positions
+	 */
+	private final int mask;
+
+	/**
+	 * Create an empty queue
+	 * @param capacity rounded up to a power of two, at least 2
+	 */
+	public MpmcQueue(final int capacity) {
+		final int length = Math.max(2, powerOfTwo(capacity));
+		this.items = new Object[length];
+		this.sequences = new long[length];
+		this.mask = length - 1;
+		for(int i = 0; i < length; i++) {
+			this.sequences[i] = i;
+		}
+	}
+
+	/**
+	 * Queue an item
+	 * @param data
+	 * @return false if the item is null or the queue is full
+	 */
+	public boolean queue(final T data) {
+		if(data == null) {
+			return false;
+		}
+
+		long pos = (long) TAIL.getOpaque(this);
+		int index;
+		while(true) {
+			index = (int) pos & this.mask;
+			final long sequence = (long) SEQUENCE.getAcquire(this.sequences, index);
+			final long diff = sequence - pos;
+			if(diff == 0) {
+				if(TAIL.compareAndSet(this, pos, pos + 1)) {
+					break; //the slot is ours
+				}
+				pos = (long) TAIL.getOpaque(this);
+			}else if(diff < 0) {
+				return false; //the consumers didn't release the slot yet: full
+			}else {
+				pos = (long) TAIL.getOpaque(this); //another producer took it
+			}
+		}
+
+		this.items[index] = data;
+		SEQUENCE.setRelease(this.sequences, index, pos + 1); //publish the item
+		return true;
+	}
+
+	/**
+	 * Dequeue an item
+	 * @return the item, or null if the queue is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T dequeue() {
+		long pos = (long) HEAD.getOpaque(this);
+		int index;
+		while(true) {
+			index = (int) pos & this.mask;
+			final long sequence = (long) SEQUENCE.getAcquire(this.sequences, index);
+			final long diff = sequence - (pos + 1);
+			if(diff == 0) {
+				if(HEAD.compareAndSet(this, pos, pos + 1)) {
+					break; //the item is ours
+				}
+				pos = (long) HEAD.getOpaque(this);
+			}else if(diff < 0) {
+				return null; //no item was published on the slot yet: empty
+			}else {
+				pos = (long) HEAD.getOpaque(this); //another consumer took it
+			}
+		}
+
+		final T item = (T) this.items[index];
+		this.items[index] = null; //let the GC collect it
+		//free the slot for the producer of the next lap
+		SEQUENCE.setRelease(this.sequences, index, pos + this.mask + 1);
+		return item;
+	}
+
+	/**
+	 * Number of items. With concurrent threads it is an estimation.
+	 * @return
+	 */
+	public int size() {
+		final long head = (long) HEAD.getVolatile(this);
+		final long size = (long) TAIL.getVolatile(this) - head;
+		return (int) Math.max(0, Math.min(size, this.items.length));
+	}
+
+	/**
+	 * Returns true only if the queue is empty. With concurrent threads it
+	 * is an estimation.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Maximum number of items
+	 * @return
+	 */
+	public int capacity() {
+		return this.items.length;
+	}
+
+	/**
+	 * Smallest power of two that is greater or equal than the capacity
+	 * @param capacity
+	 * @return
+	 */
+	private static int powerOfTwo(final int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative, got " + capacity);
+		}
+		if(capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity too big, got " + capacity);
+		}
+		return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+	}
+
+	/**
+	 * Run the tests
+	 * @param args
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+		final MpmcQueue<Integer> queue = new MpmcQueue<Integer>(1);
+		expectTrue(queue.capacity() == 2, "capacity is at least 2");
+		expectTrue(queue.dequeue() == null && queue.isEmpty(), "dequeue() returns null when the queue is empty");
+		expectTrue(!queue.queue(null), "Cannot queue null");
+		expectTrue(queue.queue(1) && queue.queue(2), "queue until it is full");
+		expectTrue(!queue.queue(3) && queue.size() == 2, "queue() returns false when the queue is full");
+		expectTrue(queue.dequeue() == 1 && queue.queue(3), "a dequeue makes room for one more item");
+		expectTrue(queue.dequeue() == 2 && queue.dequeue() == 3 && queue.dequeue() == null,
+				"FIFO order after wrapping around");
+
+		/*
+		 * Many producers and consumers: every item is dequeued exactly once
+		 */
+		final MpmcQueue<Integer> shared = new MpmcQueue<Integer>(1024);
+		final int producers = 4;
+		final int consumers = 4;
+		final int perProducer = 20_000;
+		final int total = producers * perProducer;
+		final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+		final List<Thread> threads = new ArrayList<Thread>();
+		for(int p = 0; p < producers; p++) {
+			final int first = p * perProducer;
+			threads.add(new Thread(() -> {
+				for(int i = first; i < first + perProducer; i++) {
+					while(!shared.queue(i)) {
+						Thread.yield();
+					}
+				}
+			}));
+		}
+		for(int c = 0; c < consumers; c++) {
+			threads.add(new Thread(() -> {
+				for(int i = 0; i < total / consumers; i++) {
+					Integer item;
+					while((item = shared.dequeue()) == null) {
+						Thread.yield();
+					}
+					seen.incrementAndGet(item);
+				}
+			}));
+		}
+		for(final Thread thread : threads) {
+			thread.start();
+		}
+		for(final Thread thread : threads) {
+			thread.join();
+		}
+		boolean once = true;
+		for(int i = 0; i < total; i++) {
+			once &= seen.get(i) == 1;
+		}
+		expectTrue(once && shared.isEmpty(), "every item is dequeued exactly once");
+	}
+
+	private static void expectTrue(final boolean expectation, final String message) {
+		if(expectation) {
+			System.out.println("Success: " + message);
+		}else {
+			System.err.println("Error: " + message);
+		}
+	}
+
+}
@@ -1,7 +1,13 @@
 package datastructures.linear;
 
 /**
- * My implementation of the queue data structure
+ * My implementation of the queue data structure.
+ * <p>
+ * The items are kept on a circular array (a ring buffer) instead of a
+ * linked list, so queueing an item doesn't allocate a node, and 
+ * {@code size()} and {@code isEmpty()} are O(1). The array length is always
+ * a power of two, so the index wraps around with a mask instead of a
+ * division, and it doubles when it is full.
  * @author David Perez
  *
  * @param <T>
@@ -9,39 +15,44 @@ package datastructures.linear;
 public class Queue <T> {
 	
 	/**
-	 * First item of the queue (the candidate for dequeue)
+	 * Capacity of the array when it is not specified
 	 */
-	private QueueNode<T> first;
+	private static final int DEFAULT_CAPACITY = 16;
 	
 	/**
-	 * A reference to the last queued item 
+	 * Biggest power of two that fits on an array
 	 */
-	private QueueNode<T> last;
+	public static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * The circular array with the items
+	 */
+	private Object[] items;
 	
 	/**
-	 * The node of the queue
-	 * @author David Perez
-	 *
-	 * @param <T>
+	 * Index of the first item of the queue (the candidate for dequeue)
 	 */
-	private static class QueueNode<T>{
-		/**
-		 * The data handled by the node
-		 */
-		final private T data;
-		
-		/**
-		 * A reference to the next node
-		 */
-		private QueueNode<T> next;
-		
-		/**
-		 * Construct node from data
-		 * @param data
-		 */
-		public QueueNode(final T data) {
-			this.data = data;
-		}
+	private int head;
+	
+	/**
+	 * Number of items on the queue
+	 */
+	private int size;
+	
+	/**
+	 * Create an empty queue
+	 */
+	public Queue() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Create an empty queue with space for the given number of items
+	 * before growing the array
+	 * @param initialCapacity
+	 */
+	public Queue(final int initialCapacity) {
+		this.items = new Object[powerOfTwo(initialCapacity)];
 	}
 	
 	/**
@@ -49,7 +60,7 @@ public class Queue <T> {
 	 * @return
 	 */
 	public boolean isEmpty() {
-		return this.size() == 0;
+		return this.size == 0;
 	}
 
 	/**
@@ -62,16 +73,12 @@ public class Queue <T> {
 			return false;
 		}
 		
-		final QueueNode<T> node = new QueueNode<T>(data);
-		
-		if(this.first == null) {
-			this.first = node;
-			this.last = node;
-			return true;
-		}		
+		if(this.size == this.items.length) {
+			grow();
+		}
 		
-		this.last.next = node;
-		this.last = node;
+		this.items[(this.head + this.size) & (this.items.length - 1)] = data;
+		this.size++;
 		return true;
 	}
 
@@ -79,37 +86,56 @@ public class Queue <T> {
 	 * Dequeue an item
 	 * @return
 	 */
+	@SuppressWarnings("unchecked")
 	public T dequeue() {
-		if(this.first == null) {
+		if(this.size == 0) {
 			return null;
 		}
 		
-		final T item = this.first.data;
-		this.first = this.first.next;
-		
-		if(this.first == null) {
-			this.last = null;
-		}
+		final T item = (T) this.items[this.head];
+		this.items[this.head] = null; //let the GC collect it
+		this.head = (this.head + 1) & (this.items.length - 1);
+		this.size--;
 		return item;
 	}
 
 	/**
-	 * Calculate the size of the queue
+	 * Get the size of the queue
 	 * @return
 	 */
 	public int size() {
-		if(this.first == null) {
-			return 0;
+		return this.size;
+	}
+	
+	/**
+	 * Double the array, moving the items to the beginning of the new array
+	 * @throws IllegalStateException if the array is already at {@code MAX_CAPACITY}
+	 */
+	private void grow() {
+		if(this.items.length == MAX_CAPACITY) {
+			throw new IllegalStateException("Queue is full, the capacity cannot grow beyond " + MAX_CAPACITY);
 		}
-		
-		int i = 1;
-		QueueNode<T> node = this.first;
-		while(node.next != null) {
-			i++;
-			node = node.next;
+		final Object[] grown = new Object[this.items.length * 2];
+		final int firstPart = this.items.length - this.head;
+		System.arraycopy(this.items, this.head, grown, 0, firstPart);
+		System.arraycopy(this.items, 0, grown, firstPart, this.head);
+		this.items = grown;
+		this.head = 0;
+	}
+	
+	/**
+	 * Smallest power of two that is greater or equal than the capacity
+	 * @param capacity
+	 * @return
+	 */
+	static int powerOfTwo(final int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative, got " + capacity);
 		}
-		
-		return i;
+		if(capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Capacity too big, got " + capacity + ", max " + MAX_CAPACITY);
+		}
+		return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
 	}
 	
 	/**
@@ -135,6 +161,33 @@ public class Queue <T> {
 		queue.dequeue().equals(item1);
 		expectTrue(queue.isEmpty(), "queue is empty");
 		
+		/*
+		 * The circular array wraps around and grows
+		 */
+		final Queue<Integer> ring = new Queue<Integer>(4);
+		boolean fifo = true;
+		int next = 0;
+		for(int i = 0; i < 100; i++) {
+			ring.queue(i);
+			if(i % 3 == 0) {
+				fifo &= ring.dequeue() == next;
+				next++;
+			}
+		}
+		expectTrue(ring.size() == 100 - next, "size() after wrapping around and growing");
+		while(!ring.isEmpty()) {
+			fifo &= ring.dequeue() == next;
+			next++;
+		}
+		expectTrue(fifo && next == 100, "FIFO order after wrapping around and growing");
+		expectTrue(powerOfTwo(0) == 1 && powerOfTwo(5) == 8 && powerOfTwo(8) == 8, "capacity is a power of two");
+		try {
+			new Queue<Integer>(MAX_CAPACITY + 1);
+			expectTrue(false, "a capacity over MAX_CAPACITY should fail");
+		} catch (IllegalArgumentException e) {
+			expectTrue(true, "a capacity over MAX_CAPACITY fails");
+		}
+		
 	}
 
 	private static void expectTrue(final boolean expectation, final String message) {
@@ -0,0 +1,241 @@
+package datastructures.linear;
+
+/**
+ * Double ended queue on a ring buffer: items can be added and removed at
+ * both ends in O(1).
+ * Like {@code Queue}, it is a circular array whose length is a power of two,
+ * and it doubles when it is full.
+ * <p>
+ * It can be used as a queue ({@code addLast}/{@code removeFirst}) and as a
+ * stack ({@code addLast}/{@code removeLast}); for many threads see
+ * {@code WorkStealingDeque}.
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class RingDeque<T> {
+
+	/**
+	 * Default initial capacity
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * The circular array with the items
+	 */
+	private Object[] items;
+
+	/**
+	 * Index of the first item
+	 */
+	private int head;
+
+	/**
+	 * Number of items on the deque
+	 */
+	private int size;
+
+	/**
+	 * Create an empty deque
+	 */
+	public RingDeque() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create an empty deque with space for the given number of items
+	 * before growing the array
+	 * @param initialCapacity
+	 */
+	public RingDeque(final int initialCapacity) {
+		this.items = new Object[powerOfTwo(initialCapacity)];
+	}
+
+	/**
+	 * Inserts the item at the front
+	 * @param data
+	 * @return false if the item is null
+	 */
+	public boolean addFirst(final T data) {
+		if(data == null) {
+			return false;
+		}
+		if(this.size == this.items.length) {
+			grow();
+		}
+		this.head = (this.head - 1) & (this.items.length - 1);
+		this.items[this.head] = data;
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Inserts the item at the back
+	 * @param data
+	 * @return false if the item is null
+	 */
+	public boolean addLast(final T data) {
+		if(data == null) {
+			return false;
+		}
+		if(this.size == this.items.length) {
+			grow();
+		}
+		this.items[(this.head + this.size) & (this.items.length - 1)] = data;
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Removes the item at the front
+	 * @return the item, or null if the deque is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T removeFirst() {
+		if(this.size == 0) {
+			return null;
+		}
+		final T item = (T) this.items[this.head];
+		this.items[this.head] = null; //let the GC collect it
+		this.head = (this.head + 1) & (this.items.length - 1);
+		this.size--;
+		return item;
+	}
+
+	/**
+	 * Removes the item at the back
+	 * @return the item, or null if the deque is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T removeLast() {
+		if(this.size == 0) {
+			return null;
+		}
+		final int tail = (this.head + this.size - 1) & (this.items.length - 1);
+		final T item = (T) this.items[tail];
+		this.items[tail] = null; //let the GC collect it
+		this.size--;
+		return item;
+	}
+
+	/**
+	 * Looks at the item at the front without removing it
+	 * @return the item, or null if the deque is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T peekFirst() {
+		return this.size == 0 ? null : (T) this.items[this.head];
+	}
+
+	/**
+	 * Looks at the item at the back without removing it
+	 * @return the item, or null if the deque is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T peekLast() {
+		return this.size == 0 ? null : (T) this.items[(this.head + this.size - 1) & (this.items.length - 1)];
+	}
+
+	/**
+	 * Returns true only if the deque is empty.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Get the size of the deque
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Remove all the items, keeping the array to reuse it
+	 */
+	public void clear() {
+		for(int i = 0; i < this.size; i++) {
+			this.items[(this.head + i) & (this.items.length - 1)] = null;
+		}
+		this.head = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Double the array, moving the items to the beginning of the new array
+	 * @throws IllegalStateException if the array can't grow anymore
+	 */
+	private void grow() {
+		if(this.items.length == 1 << 30) {
+			throw new IllegalStateException("Deque is full, the capacity cannot grow beyond " + (1 << 30));
+		}
+		final Object[] grown = new Object[this.items.length * 2];
+		final int firstPart = this.items.length - this.head;
+		System.arraycopy(this.items, this.head, grown, 0, firstPart);
+		System.arraycopy(this.items, 0, grown, firstPart, this.head);
+		this.items = grown;
+		this.head = 0;
+	}
+
+	/**
+	 * Smallest power of two that is greater or equal than the capacity
+	 * @param capacity
+	 * @return
+	 */
+	private static int powerOfTwo(final int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative, got " + capacity);
+		}
+		if(capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity too big, got " + capacity);
+		}
+		return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+	}
+
+	/**
+	 * Run the tests
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		final RingDeque<Integer> deque = new RingDeque<Integer>(2);
+		expectTrue(deque.isEmpty() && deque.removeFirst() == null && deque.removeLast() == null, "starts empty");
+		expectTrue(!deque.addFirst(null) && !deque.addLast(null), "Cannot add null");
+
+		deque.addLast(2);
+		deque.addFirst(1);
+		deque.addLast(3);
+		deque.addFirst(0); //wraps around and grows
+		expectTrue(deque.size() == 4 && deque.peekFirst() == 0 && deque.peekLast() == 3, "add at both ends");
+		expectTrue(deque.removeFirst() == 0 && deque.removeLast() == 3, "remove at both ends");
+		expectTrue(deque.removeLast() == 2 && deque.removeLast() == 1 && deque.isEmpty(), "use as a stack");
+
+		boolean fifo = true;
+		int next = 0;
+		for(int i = 0; i < 100; i++) {
+			deque.addLast(i);
+			if(i % 3 == 0) {
+				fifo &= deque.removeFirst() == next++;
+			}
+		}
+		while(!deque.isEmpty()) {
+			fifo &= deque.removeFirst() == next++;
+		}
+		expectTrue(fifo && next == 100, "use as a queue, after wrapping around and growing");
+
+		deque.addFirst(7);
+		deque.clear();
+		expectTrue(deque.isEmpty() && deque.peekFirst() == null, "clear()");
+	}
+
+	private static void expectTrue(final boolean expectation, final String message) {
+		if(expectation) {
+			System.out.println("Success: " + message);
+		}else {
+			System.err.println("Error: " + message);
+		}
+	}
+
+}
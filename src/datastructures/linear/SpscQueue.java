@@ -0,0 +1,252 @@
+package datastructures.linear;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Padding before the producer fields. The fields of a superclass are laid
+ * out before the fields of its subclasses, so a chain of classes is the way
+ * to keep the producer and the consumer fields on different cache lines.
+ */
+abstract class SpscQueuePad0 {
+	long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+/**
+ * Fields written by the producer thread
+ */
+abstract class SpscQueueProducerFields extends SpscQueuePad0 {
+	/**
+	 * Index of the next item to queue
+	 */
+	volatile long tail;
+
+	/**
+	 * Last value of head seen by the producer, so it reads the consumer
+	 * cache line only when the queue looks full
+	 */
+	long cachedHead;
+}
+
+abstract class SpscQueuePad1 extends SpscQueueProducerFields {
+	long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+/**
+ * Fields written by the consumer thread
+ */
+abstract class SpscQueueConsumerFields extends SpscQueuePad1 {
+	/**
+	 * Index of the next item to dequeue
+	 */
+	volatile long head;
+
+	/**
+	 * Last value of tail seen by the consumer, so it reads the producer
+	 * cache line only when the queue looks empty
+	 */
+	long cachedTail;
+}
+
+abstract class SpscQueuePad2 extends SpscQueueConsumerFields {
+	long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
+/**
+ * Bounded single-producer/single-consumer queue, with the same
+ * {@code queue}/{@code dequeue} contract of {@code Queue}.
+ * <p>
+ * It is a ring buffer where only the producer writes {@code tail} and only
+ * the consumer writes {@code head}, so no locks nor CAS are needed and both
+ * operations are wait-free. The indexes are published with release/acquire
+ * semantics, which is enough to see the item written on the slot.
+ * The indexes are padded so the producer and the consumer don't invalidate
+ * each other cache lines (false sharing).
+ * <p>
+ * It is safe only with one producer thread and one consumer thread; for
+ * many threads use {@code MpmcQueue}.
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class SpscQueue<T> extends SpscQueuePad2 {
+
+	private static final VarHandle TAIL;
+	private static final VarHandle HEAD;
+	static {
+		try {
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			TAIL = lookup.findVarHandle(SpscQueueProducerFields.class, "tail", long.class);
+			HEAD = lookup.findVarHandle(SpscQueueConsumerFields.class, "head", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * The ring buffer
+	 */
+	private final Object[] items;
+
+	/**
+	 * Capacity minus one, to wrap the indexes
+	 */
+	private final int mask;
+
+	/**
+	 * Create an empty queue
+	 * @param capacity rounded up to a power of two
+	 */
+	public SpscQueue(final int capacity) {
+		this.items = new Object[powerOfTwo(capacity)];
+		this.mask = this.items.length - 1;
+	}
+
+	/**
+	 * Queue an item. Call it only from the producer thread.
+	 * @param data
+	 * @return false if the item is null or the queue is full
+	 */
+	public boolean queue(final T data) {
+		if(data == null) {
+			return false;
+		}
+
+		final long tail = (long) TAIL.getOpaque(this);
+		if(tail - this.cachedHead == this.items.length) {
+			this.cachedHead = (long) HEAD.getAcquire(this);
+			if(tail - this.cachedHead == this.items.length) {
+				return false;
+			}
+		}
+
+		this.items[(int) tail & this.mask] = data;
+		TAIL.setRelease(this, tail + 1); //publish the item
+		return true;
+	}
+
+	/**
+	 * Dequeue an item. Call it only from the consumer thread.
+	 * @return the item, or null if the queue is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T dequeue() {
+		final long head = (long) HEAD.getOpaque(this);
+		if(head == this.cachedTail) {
+			this.cachedTail = (long) TAIL.getAcquire(this);
+			if(head == this.cachedTail) {
+				return null;
+			}
+		}
+
+		final int index = (int) head & this.mask;
+		final T item = (T) this.items[index];
+		this.items[index] = null; //let the GC collect it
+		HEAD.setRelease(this, head + 1); //give the slot back to the producer
+		return item;
+	}
+
+	/**
+	 * Number of items. With concurrent threads it is an estimation.
+	 * The head is read first: the tail is never behind a head read before
+	 * it, so the difference is not negative, and it is clamped to the
+	 * capacity in case both moved between the two reads.
+	 * @return
+	 */
+	public int size() {
+		final long head = (long) HEAD.getAcquire(this);
+		final long tail = (long) TAIL.getAcquire(this);
+		return (int) Math.max(0, Math.min(tail - head, this.items.length));
+	}
+
+	/**
+	 * Returns true only if the queue is empty. With concurrent threads it
+	 * is an estimation.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Maximum number of items
+	 * @return
+	 */
+	public int capacity() {
+		return this.items.length;
+	}
+
+	/**
+	 * Smallest power of two that is greater or equal than the capacity
+	 * @param capacity
+	 * @return
+	 */
+	private static int powerOfTwo(final int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative, got " + capacity);
+		}
+		if(capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity too big, got " + capacity);
+		}
+		return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+	}
+
+	/**
+	 * Run the tests
+	 * @param args
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+		final SpscQueue<Integer> queue = new SpscQueue<Integer>(3);
+		expectTrue(queue.capacity() == 4, "capacity is rounded to a power of two");
+		expectTrue(queue.dequeue() == null && queue.isEmpty(), "dequeue() returns null when the queue is empty");
+		expectTrue(!queue.queue(null), "Cannot queue null");
+		for(int i = 0; i < 4; i++) {
+			queue.queue(i);
+		}
+		expectTrue(!queue.queue(4) && queue.size() == 4, "queue() returns false when the queue is full");
+		expectTrue(queue.dequeue() == 0 && queue.queue(4), "a dequeue makes room for one more item");
+		boolean fifo = true;
+		for(int i = 1; i <= 4; i++) {
+			fifo &= queue.dequeue() == i;
+		}
+		expectTrue(fifo && queue.isEmpty(), "FIFO order after wrapping around");
+
+		/*
+		 * One producer and one consumer thread
+		 */
+		final SpscQueue<Integer> pipe = new SpscQueue<Integer>(1024);
+		final int items = 100_000;
+		final Thread producer = new Thread(() -> {
+			for(int i = 0; i < items; i++) {
+				while(!pipe.queue(i)) {
+					Thread.yield();
+				}
+			}
+		});
+		final boolean[] ordered = {true};
+		final Thread consumer = new Thread(() -> {
+			for(int i = 0; i < items; i++) {
+				Integer item;
+				while((item = pipe.dequeue()) == null) {
+					Thread.yield();
+				}
+				ordered[0] &= item == i;
+			}
+		});
+		producer.start();
+		consumer.start();
+		producer.join();
+		consumer.join();
+		expectTrue(ordered[0] && pipe.isEmpty(), "the consumer sees every item in order");
+	}
+
+	private static void expectTrue(final boolean expectation, final String message) {
+		if(expectation) {
+			System.out.println("Success: " + message);
+		}else {
+			System.err.println("Error: " + message);
+		}
+	}
+
+}
@@ -1,7 +1,19 @@
 package datastructures.linear;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * My implementation of the Stack data structure.
+ * <p>
+ * The items are stored on a growable array, so a push doesn't allocate a
+ * node and {@code size()} is O(1). The array doubles when it is full, and
+ * halves when a pop leaves it a quarter full (never below the initial
+ * capacity), so a stack that was big once doesn't keep the memory forever;
+ * the gap between both thresholds avoids resizing back and forth.
+ * For stacks of vertex indexes use {@code IntStack}.
  * 
  * @author David Perez
  *
@@ -10,34 +22,50 @@ package datastructures.linear;
 public class Stack <T> {
 	
 	/**
-	 * The top of the stack
+	 * Default initial capacity
 	 */
-	private StackNode<T> top;
+	private static final int DEFAULT_CAPACITY = 16;
 	
 	/**
-	 * The node of the stack
-	 * @author david
-	 *
-	 * @param <T>
+	 * The items, the top is at {@code size - 1}
 	 */
-	private static class StackNode<T>{
-		/**
-		 * The data stored on the node
-		 */
-		private final T data;
-		
-		/**
-		 * A reference to the next node 
-		 */
-		private StackNode<T> next;
-		
-		/**
-		 * Should include the data on the constructor
-		 * @param data
-		 */
-		public StackNode(final T data) {
-			this.data = data;
+	private Object[] items;
+	
+	/**
+	 * Number of items on the stack
+	 */
+	private int size;
+	
+	/**
+	 * Capacity of the constructor, the floor of {@code trimToSize()}
+	 */
+	private final int initialCapacity;
+
+	/**
+	 * The array never shrinks below this capacity: the initial capacity,
+	 * or the last capacity reserved with {@code ensureCapacity}
+	 */
+	private int minCapacity;
+	
+	/**
+	 * Create an empty stack
+	 */
+	public Stack() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Create an empty stack with space for the given number of items
+	 * before growing the array
+	 * @param initialCapacity
+	 */
+	public Stack(final int initialCapacity) {
+		if(initialCapacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative, got " + initialCapacity);
 		}
+		this.initialCapacity = Math.max(1, initialCapacity);
+		this.minCapacity = this.initialCapacity;
+		this.items = new Object[this.initialCapacity];
 	}
 	
 	/**
@@ -45,17 +73,7 @@ public class Stack <T> {
 	 * @return
 	 */
 	public int size() {
-		if(this.top == null) {
-			return 0;
-		}
-		
-		int i = 1;
-		StackNode<T> node = this.top;
-		while(node.next != null) {
-			i++;
-			node = node.next;
-		}
-		return i;
+		return this.size;
 	}
 
 	/**
@@ -68,10 +86,29 @@ public class Stack <T> {
 			return false;
 		}
 		
-		final StackNode<T> node = new StackNode<T>(data);
-		
-		node.next = this.top;
-		this.top = node;
+		if(this.size == this.items.length) {
+			grow(this.size + 1);
+		}
+		this.items[this.size++] = data;
+		return true;
+	}
+
+	/**
+	 * Pushes every item of the collection, in its iteration order (so the
+	 * last item ends on the top). The array grows at most once.
+	 * @param data
+	 * @return false if an item is null, in which case nothing is pushed
+	 */
+	public boolean pushAll(final Collection<? extends T> data) {
+		final Object[] batch = data.toArray();
+		for(final Object item : batch) {
+			if(item == null) {
+				return false;
+			}
+		}
+		grow(this.size + batch.length);
+		System.arraycopy(batch, 0, this.items, this.size, batch.length);
+		this.size += batch.length;
 		return true;
 	}
 
@@ -82,22 +119,42 @@ public class Stack <T> {
 	 * @param data
 	 * @return
 	 */
+	@SuppressWarnings("unchecked")
 	public T pop() {
-		if(this.top == null) {
+		if(this.size == 0) {
 			return null;
 		}
 		
-		final T item = this.top.data;
-		this.top = this.top.next;
+		final T item = (T) this.items[--this.size];
+		this.items[this.size] = null; //let the GC collect it
+		shrink();
 		return item;
 	}
 
+	/**
+	 * Removes up to n items from the top of this stack
+	 * @param n
+	 * @return the removed items, the top first
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> popN(final int n) {
+		final int count = Math.max(0, Math.min(n, this.size));
+		final List<T> popped = new ArrayList<T>(count);
+		for(int i = 0; i < count; i++) {
+			popped.add((T) this.items[this.size - 1 - i]);
+		}
+		Arrays.fill(this.items, this.size - count, this.size, null);
+		this.size -= count;
+		shrink();
+		return popped;
+	}
+
 	/**
 	 * Tests if this stack is empty.
 	 * @return
 	 */
 	public boolean isEmpty() {
-		return this.top == null;
+		return this.size == 0;
 	}
 
 	/**
@@ -105,11 +162,72 @@ public class Stack <T> {
 	 * removing it from the stack.
 	 * @return
 	 */
+	@SuppressWarnings("unchecked")
 	public T peek() {
-		if(this.top == null) {
+		if(this.size == 0) {
 			return null;
 		}
-		return this.top.data;
+		return (T) this.items[this.size - 1];
+	}
+
+	/**
+	 * Make room for at least the given number of items, so a known number
+	 * of pushes doesn't grow the array many times
+	 * <p>
+	 * The capacity is reserved: pops don't shrink the array below it, so a
+	 * stack sized for a traversal keeps its array between traversals. Call
+	 * {@code trimToSize()} to release it.
+	 * @param capacity
+	 */
+	public void ensureCapacity(final int capacity) {
+		this.minCapacity = Math.max(this.minCapacity, capacity);
+		grow(capacity);
+	}
+
+	/**
+	 * Make room for at least the given number of items, doubling the array
+	 * @param capacity
+	 */
+	private void grow(final int capacity) {
+		if(capacity > this.items.length) {
+			final int doubled = this.items.length > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE - 8 : this.items.length * 2;
+			this.items = Arrays.copyOf(this.items, Math.max(capacity, doubled));
+		}
+	}
+
+	/**
+	 * Shrink the array to the number of items (or the initial capacity),
+	 * releasing the capacity reserved with {@code ensureCapacity}
+	 */
+	public void trimToSize() {
+		this.minCapacity = this.initialCapacity;
+		final int capacity = Math.max(this.size, this.minCapacity);
+		if(capacity < this.items.length) {
+			this.items = Arrays.copyOf(this.items, capacity);
+		}
+	}
+
+	/**
+	 * Length of the array of items
+	 * @return
+	 */
+	public int capacity() {
+		return this.items.length;
+	}
+
+	/**
+	 * Halve the array while it is a quarter full (more than once after a
+	 * popN), copying the items only once. It never goes below
+	 * {@code minCapacity}.
+	 */
+	private void shrink() {
+		int capacity = this.items.length;
+		while(this.size <= capacity / 4 && capacity > this.minCapacity) {
+			capacity = Math.max(capacity / 2, this.minCapacity);
+		}
+		if(capacity < this.items.length) {
+			this.items = Arrays.copyOf(this.items, capacity);
+		}
 	}
 	
 	/**
@@ -164,6 +282,37 @@ public class Stack <T> {
 		assertTrue(stack.popEqualsTo(hi), "pop() the top of the stack");
 		assertTrue(stack.popEqualsTo(second), "pop() the top of the stack");
 
+		/*
+		 * Array growth, bulk operations and shrink policy
+		 */
+		final Stack<Integer> numbers = new Stack<Integer>(4);
+		assertTrue(numbers.pushAll(List.of(1, 2, 3, 4, 5)) && numbers.size() == 5 && numbers.peek() == 5,
+				"pushAll() grows the array");
+		assertTrue(!numbers.pushAll(Arrays.asList(6, null)) && numbers.size() == 5, "pushAll() with a null pushes nothing");
+		assertTrue(numbers.popN(2).equals(List.of(5, 4)) && numbers.size() == 3, "popN() the top first");
+		assertTrue(numbers.popN(10).equals(List.of(3, 2, 1)) && numbers.isEmpty(), "popN() more items than the size");
+		numbers.ensureCapacity(1000);
+		assertTrue(numbers.capacity() >= 1000, "ensureCapacity()");
+		for(int i = 0; i < 1000; i++) {
+			numbers.push(i);
+		}
+		while(numbers.size() > 10) {
+			numbers.pop();
+		}
+		assertTrue(numbers.capacity() >= 1000, "pops don't shrink below the reserved capacity");
+		numbers.trimToSize();
+		assertTrue(numbers.capacity() == 10 && numbers.peek() == 9, "trimToSize() releases the reserved capacity");
+		for(int i = 0; i < 1000; i++) {
+			numbers.push(i);
+		}
+		while(numbers.size() > 10) {
+			numbers.pop();
+		}
+		assertTrue(numbers.capacity() < 100 && numbers.capacity() >= 10, "the array shrinks after many pops");
+		while(!numbers.isEmpty()) {
+			numbers.pop();
+		}
+		assertTrue(numbers.capacity() == 4, "never below the initial capacity");
 	}
 
 	private static void assertTrue(final boolean expectation, final String message) {
@@ -0,0 +1,425 @@
+package datastructures.linear;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Unrolled linked list: a linked list where each node holds a small array of
+ * elements (a block) and its fill count.
+ * <p>
+ * With {@code LinkedList} every element is a node, so iterating is a pointer
+ * chase with a cache miss per element, plus a header and a reference of
+ * overhead per element. Here the elements of a block are contiguous, so the
+ * iteration is sequential inside each block and the node overhead is shared
+ * by the whole block.
+ * <ul>
+ * 	<li>Inserting on a full block splits it in two half blocks</li>
+ * 	<li>Removing from a block that becomes less than half full borrows
+ * 	elements from the next block, or merges with it, so every block (but
+ * 	the last) stays at least half full</li>
+ * </ul>
+ * Positional operations walk the blocks, not the elements, so they are
+ * O(N/B) where B is the block capacity.
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class UnrolledLinkedList<T> implements Iterable<T> {
+
+	/**
+	 * Default number of elements per block
+	 */
+	public static final int DEFAULT_BLOCK_CAPACITY = 32;
+
+	/**
+	 * A node of the list, with a block of elements
+	 */
+	private static class Block {
+		private final Object[] items;
+		private int count;
+		private Block next;
+
+		Block(final int capacity) {
+			this.items = new Object[capacity];
+		}
+	}
+
+	/**
+	 * The head block. There is always at least one, maybe empty.
+	 */
+	private Block first;
+
+	/**
+	 * The tail block, so appends don't walk the list
+	 */
+	private Block last;
+
+	/**
+	 * Number of elements
+	 */
+	private int size;
+
+	/**
+	 * Elements per block
+	 */
+	private final int blockCapacity;
+
+	/**
+	 * Create a list with blocks of {@code DEFAULT_BLOCK_CAPACITY} elements
+	 */
+	public UnrolledLinkedList() {
+		this(DEFAULT_BLOCK_CAPACITY);
+	}
+
+	/**
+	 * Create a list
+	 * @param blockCapacity elements per block, at least 2
+	 */
+	public UnrolledLinkedList(final int blockCapacity) {
+		if(blockCapacity < 2) {
+			throw new IllegalArgumentException("Block capacity should be at least 2, got " + blockCapacity);
+		}
+		this.blockCapacity = blockCapacity;
+		this.first = new Block(blockCapacity);
+		this.last = this.first;
+	}
+
+	/**
+	 * Appends the specified element to the end of this list. O(1).
+	 * @param data
+	 * @return false if the element is null
+	 */
+	public boolean add(final T data) {
+		if(data == null) {
+			return false;
+		}
+
+		if(this.last.count == this.blockCapacity) {
+			//the tail block is full: start a new one instead of splitting,
+			//so appending leaves the blocks completely full
+			final Block block = new Block(this.blockCapacity);
+			this.last.next = block;
+			this.last = block;
+		}
+		this.last.items[this.last.count++] = data;
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Inserts the element at the specified position, shifting the following
+	 * elements. A full block is split in two.
+	 * @param index on [0, size]
+	 * @param data
+	 * @return false if the element is null
+	 * @throws IndexOutOfBoundsException if the index is not on [0, size]
+	 */
+	public boolean add(final int index, final T data) {
+		if(index < 0 || index > this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		}
+		if(data == null) {
+			return false;
+		}
+		if(index == this.size) {
+			return add(data);
+		}
+
+		Block block = this.first;
+		int offset = index;
+		while(offset >= block.count) {
+			offset -= block.count;
+			block = block.next;
+		}
+
+		if(block.count == this.blockCapacity) {
+			final Block half = split(block);
+			if(offset > block.count) {
+				offset -= block.count;
+				block = half;
+			}
+		}
+		System.arraycopy(block.items, offset, block.items, offset + 1, block.count - offset);
+		block.items[offset] = data;
+		block.count++;
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Returns the element at the specified position. O(N/B).
+	 * @param index
+	 * @return
+	 * @throws IndexOutOfBoundsException if the index is not on [0, size)
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(final int index) {
+		checkIndex(index);
+
+		Block block = this.first;
+		int offset = index;
+		while(offset >= block.count) {
+			offset -= block.count;
+			block = block.next;
+		}
+		return (T) block.items[offset];
+	}
+
+	/**
+	 * Removes the element at the specified position, shifting the following
+	 * elements. A block that becomes less than half full is refilled from
+	 * the next block or merged with it.
+	 * @param index
+	 * @return the removed element
+	 * @throws IndexOutOfBoundsException if the index is not on [0, size)
+	 */
+	@SuppressWarnings("unchecked")
+	public T remove(final int index) {
+		checkIndex(index);
+
+		Block previous = null;
+		Block block = this.first;
+		int offset = index;
+		while(offset >= block.count) {
+			offset -= block.count;
+			previous = block;
+			block = block.next;
+		}
+
+		final T data = (T) block.items[offset];
+		System.arraycopy(block.items, offset + 1, block.items, offset, block.count - offset - 1);
+		block.items[--block.count] = null; //let the GC collect it
+		this.size--;
+		if(block.count == 0 && previous != null) {
+			//an empty block that is not the head: unlink it
+			previous.next = block.next;
+			if(this.last == block) {
+				this.last = previous;
+			}
+		}else {
+			rebalance(block);
+		}
+		return data;
+	}
+
+	/**
+	 * Removes the first occurrence of the specified element
+	 * from this list, if it is present.
+	 * @param data
+	 * @return true if the element was found
+	 */
+	public boolean remove(final T data) {
+		if(data == null) {
+			return false;
+		}
+
+		int index = 0;
+		for(Block block = this.first; block != null; block = block.next) {
+			for(int i = 0; i < block.count; i++, index++) {
+				if(data.equals(block.items[i])) {
+					remove(index);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of elements in this list. O(1).
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if this list contains no elements.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Number of blocks of the list
+	 * @return
+	 */
+	public int blocks() {
+		int blocks = 0;
+		for(Block block = this.first; block != null; block = block.next) {
+			blocks++;
+		}
+		return blocks;
+	}
+
+	/**
+	 * Iterates the elements from the first to the last, sequentially inside
+	 * each block
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private Block block = UnrolledLinkedList.this.first;
+			private int offset;
+
+			@Override
+			public boolean hasNext() {
+				while(this.offset == this.block.count) {
+					if(this.block.next == null) {
+						return false;
+					}
+					this.block = this.block.next;
+					this.offset = 0;
+				}
+				return true;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public T next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return (T) this.block.items[this.offset++];
+			}
+		};
+	}
+
+	private void checkIndex(final int index) {
+		if(index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		}
+	}
+
+	/**
+	 * Move the upper half of a full block to a new block linked after it
+	 * @param block
+	 * @return the new block
+	 */
+	private Block split(final Block block) {
+		final Block half = new Block(this.blockCapacity);
+		final int keep = block.count / 2;
+		half.count = block.count - keep;
+		System.arraycopy(block.items, keep, half.items, 0, half.count);
+		Arrays.fill(block.items, keep, block.count, null);
+		block.count = keep;
+
+		half.next = block.next;
+		block.next = half;
+		if(this.last == block) {
+			this.last = half;
+		}
+		return half;
+	}
+
+	/**
+	 * Keep the block at least half full: merge it with the next block if
+	 * both fit on one block, or else borrow elements from the next block.
+	 * @param block
+	 */
+	private void rebalance(final Block block) {
+		final int min = this.blockCapacity / 2;
+		final Block next = block.next;
+		if(block.count >= min || next == null) {
+			return;
+		}
+
+		if(block.count + next.count <= this.blockCapacity) {
+			System.arraycopy(next.items, 0, block.items, block.count, next.count);
+			block.count += next.count;
+			block.next = next.next;
+			if(this.last == next) {
+				this.last = block;
+			}
+		}else {
+			final int borrow = min - block.count;
+			System.arraycopy(next.items, 0, block.items, block.count, borrow);
+			block.count += borrow;
+			System.arraycopy(next.items, borrow, next.items, 0, next.count - borrow);
+			Arrays.fill(next.items, next.count - borrow, next.count, null);
+			next.count -= borrow;
+		}
+	}
+
+	/**
+	 * Run the tests
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		final UnrolledLinkedList<Integer> list = new UnrolledLinkedList<Integer>(4);
+		expectTrue(list.isEmpty() && !list.iterator().hasNext(), "List is empty");
+		expectTrue(!list.add(null) && !list.remove((Integer) 1), "Expect failure of null additions and missing removals");
+		for(int i = 0; i < 10; i++) {
+			list.add(i);
+		}
+		expectTrue(list.size() == 10 && list.blocks() == 3, "appends fill the blocks");
+		expectTrue(list.get(0) == 0 && list.get(5) == 5 && list.get(9) == 9, "get() by position");
+
+		list.add(1, 100); //first block is full: split
+		expectTrue(list.blocks() == 4 && list.get(1) == 100 && list.get(2) == 1, "insert on a full block splits it");
+		list.add(0, -1);
+		list.add(list.size(), 200);
+		expectTrue(list.get(0) == -1 && list.get(list.size() - 1) == 200, "insert at the edges");
+
+		expectTrue(list.remove(1) == 0 && list.remove((Integer) 100), "remove by position and by value");
+		for(int i = 0; i < 5; i++) {
+			list.remove(0);
+		}
+		final StringBuilder sb = new StringBuilder();
+		for(final int i : list) {
+			sb.append(i).append(',');
+		}
+		expectTrue("5,6,7,8,9,200,".equals(sb.toString()), "removals borrow and merge blocks " + sb);
+
+		try {
+			list.get(list.size());
+			expectTrue(false, "get() out of bounds should throw");
+		} catch (IndexOutOfBoundsException e) {
+			expectTrue(true, "get() out of bounds throws");
+		}
+
+		/*
+		 * Random operations against ArrayList
+		 */
+		final Random random = new Random(42);
+		final UnrolledLinkedList<Integer> unrolled = new UnrolledLinkedList<Integer>(8);
+		final List<Integer> expected = new ArrayList<Integer>();
+		boolean same = true;
+		for(int op = 0; op < 20_000; op++) {
+			if(expected.isEmpty() || random.nextInt(3) > 0) {
+				final int index = random.nextInt(expected.size() + 1);
+				unrolled.add(index, op);
+				expected.add(index, op);
+			}else {
+				final int index = random.nextInt(expected.size());
+				same &= unrolled.remove(index).equals(expected.remove(index));
+			}
+		}
+		int i = 0;
+		for(final int item : unrolled) {
+			same &= item == expected.get(i++);
+		}
+		expectTrue(same && i == expected.size() && unrolled.size() == expected.size(), "same elements than ArrayList after random operations");
+		expectTrue(unrolled.blocks() <= 2 * unrolled.size() / 8 + 1, "blocks are at least half full");
+
+		while(!unrolled.isEmpty()) {
+			unrolled.remove(unrolled.size() - 1);
+		}
+		expectTrue(unrolled.blocks() == 1 && unrolled.add(1) && unrolled.get(0) == 1, "reusable after removing everything");
+	}
+
+	private static void expectTrue(final boolean expectation, final String message) {
+		if(expectation) {
+			System.out.println("Success: " + message);
+		}else {
+			System.err.println("Error: " + message);
+		}
+	}
+
+}
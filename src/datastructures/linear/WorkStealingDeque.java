@@ -0,0 +1,346 @@
+package datastructures.linear;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Work-stealing deque of Chase and Lev: one owner thread pushes and pops at
+ * the bottom (like a stack, so it works on the most recent, cache-hot
+ * items), and any number of thief threads steal from the top (the oldest
+ * items, which on a traversal are usually the biggest pieces of work).
+ * <p>
+ * The owner operations don't need a CAS except to take the last item, when
+ * the owner and a thief can race for it. The thieves race between them
+ * with a CAS on {@code top}. The array is circular and grows when full; only
+ * the owner replaces it, and a thief that still reads the old array finds
+ * the same items there.
+ * <p>
+ * The memory fences follow "Correct and Efficient Work-Stealing for Weak
+ * Memory Models" (Le, Pop, Cohen and Zappa Nardelli, 2013):
+ * <ul>
+ * 	<li>{@code push}: write the item, then publish {@code bottom} with
+ * 	release semantics</li>
+ * 	<li>{@code pop}: decrement {@code bottom}, then a full fence before
+ * 	reading {@code top}, so a thief can't take the same item</li>
+ * 	<li>{@code steal}: read {@code top}, then a full fence before reading
+ * 	{@code bottom}</li>
+ * </ul>
+ * <p>
+ * The slots of the items already taken are set to null so the deque doesn't
+ * keep them alive. Only the owner writes the slots: a thief that wins the
+ * CAS can't clear its slot, because by then the owner may have pushed a new
+ * item on the same slot. The owner clears the slots stolen since its last
+ * operation (the positions before {@code top}) on each push and pop; any
+ * thief still reading one of them loses its CAS, because {@code top} is
+ * already past it.
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class WorkStealingDeque<T> {
+
+	private static final VarHandle TOP;
+	private static final VarHandle BOTTOM;
+	private static final VarHandle ARRAY;
+	private static final VarHandle ITEM = MethodHandles.arrayElementVarHandle(Object[].class);
+	static {
+		try {
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			TOP = lookup.findVarHandle(WorkStealingDeque.class, "top", long.class);
+			BOTTOM = lookup.findVarHandle(WorkStealingDeque.class, "bottom", long.class);
+			ARRAY = lookup.findVarHandle(WorkStealingDeque.class, "items", Object[].class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Position of the oldest item, where the thieves steal. Only grows.
+	 */
+	@SuppressWarnings("unused")
+	private volatile long top;
+
+	/**
+	 * Position after the newest item, where the owner pushes and pops
+	 */
+	@SuppressWarnings("unused")
+	private volatile long bottom;
+
+	/**
+	 * The circular array, its length is a power of two
+	 */
+	@SuppressWarnings("unused")
+	private volatile Object[] items;
+
+	/**
+	 * Positions before this one have a null slot or a slot reused by a
+	 * newer item. Only the owner reads and writes it.
+	 */
+	private long cleared;
+
+	/**
+	 * Create an empty deque
+	 */
+	public WorkStealingDeque() {
+		this(64);
+	}
+
+	/**
+	 * Create an empty deque with space for the given number of items
+	 * before growing the array
+	 * @param initialCapacity
+	 */
+	public WorkStealingDeque(final int initialCapacity) {
+		this.items = new Object[powerOfTwo(initialCapacity)];
+	}
+
+	/**
+	 * Push an item at the bottom. Call it only from the owner thread.
+	 * @param data
+	 * @return false if the item is null
+	 */
+	public boolean push(final T data) {
+		if(data == null) {
+			return false;
+		}
+
+		final long b = (long) BOTTOM.getOpaque(this);
+		final long t = (long) TOP.getAcquire(this);
+		Object[] a = (Object[]) ARRAY.getOpaque(this);
+		if(b - t > a.length - 1) {
+			a = grow(a, t, b);
+		}else {
+			clearStolen(a, t, b);
+		}
+		ITEM.setRelease(a, (int) b & (a.length - 1), data);
+		BOTTOM.setRelease(this, b + 1); //publish the item to the thieves
+		return true;
+	}
+
+	/**
+	 * Pop the newest item from the bottom. Call it only from the owner thread.
+	 * @return the item, or null if the deque is empty (or a thief took the
+	 * last item)
+	 */
+	@SuppressWarnings("unchecked")
+	public T pop() {
+		final long b = (long) BOTTOM.getOpaque(this) - 1;
+		final Object[] a = (Object[]) ARRAY.getOpaque(this);
+		BOTTOM.setOpaque(this, b);
+		VarHandle.fullFence(); //the store of bottom before the load of top
+		final long t = (long) TOP.getOpaque(this);
+
+		if(t > b) {
+			BOTTOM.setOpaque(this, b + 1); //it was empty
+			clearStolen(a, t, b + 1);
+			return null;
+		}
+		clearStolen(a, t, b + 1);
+		final int slot = (int) b & (a.length - 1);
+		final T item = (T) ITEM.getOpaque(a, slot);
+		if(t == b) {
+			//the last item: race with the thieves for it
+			final boolean won = TOP.compareAndSet(this, t, t + 1);
+			//top is past b whoever won, so no thief reads the slot anymore
+			ITEM.setOpaque(a, slot, null);
+			this.cleared = t + 1;
+			BOTTOM.setOpaque(this, b + 1);
+			return won ? item : null;
+		}
+		//a thief can't reach b: it would need top == b, and top was below
+		ITEM.setOpaque(a, slot, null);
+		return item;
+	}
+
+	/**
+	 * Steal the oldest item from the top. Any thread can call it.
+	 * @return the item, or null if the deque is empty or another thread
+	 * took the item first
+	 */
+	@SuppressWarnings("unchecked")
+	public T steal() {
+		final long t = (long) TOP.getAcquire(this);
+		VarHandle.fullFence(); //the load of top before the load of bottom
+		final long b = (long) BOTTOM.getAcquire(this);
+		if(t >= b) {
+			return null;
+		}
+
+		final Object[] a = (Object[]) ARRAY.getAcquire(this);
+		final T item = (T) ITEM.getAcquire(a, (int) t & (a.length - 1));
+		if(!TOP.compareAndSet(this, t, t + 1)) {
+			return null; //lost the race with another thief or the owner
+		}
+		return item;
+	}
+
+	/**
+	 * Number of items. With concurrent threads it is an estimation.
+	 * @return
+	 */
+	public int size() {
+		final long size = (long) BOTTOM.getVolatile(this) - (long) TOP.getVolatile(this);
+		return (int) Math.max(0, size);
+	}
+
+	/**
+	 * Returns true only if the deque is empty. With concurrent threads it
+	 * is an estimation.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Set to null the slots of the items stolen since the last call, i.e.
+	 * the positions [cleared, top). A position {@code p} shares its slot
+	 * with {@code p + length}, so the positions below {@code end - length}
+	 * were already reused by items pushed later and are skipped. Only the
+	 * owner calls it.
+	 * @param a the current array
+	 * @param t a value of top read by the owner
+	 * @param end position after the newest item
+	 */
+	private void clearStolen(final Object[] a, final long t, final long end) {
+		for(long i = Math.max(this.cleared, end - a.length); i < t; i++) {
+			ITEM.setOpaque(a, (int) i & (a.length - 1), null);
+		}
+		this.cleared = Math.max(this.cleared, t);
+	}
+
+	/**
+	 * Double the array, copying the items of [top, bottom) to the same
+	 * positions of the new array. Only the owner calls it.
+	 */
+	private Object[] grow(final Object[] a, final long t, final long b) {
+		final Object[] grown = new Object[a.length * 2];
+		for(long i = t; i < b; i++) {
+			grown[(int) i & (grown.length - 1)] = ITEM.getOpaque(a, (int) i & (a.length - 1));
+		}
+		ARRAY.setRelease(this, grown);
+		this.cleared = t; //the new array has nothing before top
+		return grown;
+	}
+
+	/**
+	 * Smallest power of two that is greater or equal than the capacity
+	 * @param capacity
+	 * @return
+	 */
+	private static int powerOfTwo(final int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative, got " + capacity);
+		}
+		if(capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity too big, got " + capacity);
+		}
+		return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+	}
+
+	/**
+	 * Number of non-null slots of the array, to test that the items taken
+	 * are not retained. Only for a quiescent deque.
+	 * @return
+	 */
+	private int retained() {
+		int count = 0;
+		for(final Object item : (Object[]) ARRAY.getVolatile(this)) {
+			if(item != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Run the tests
+	 * @param args
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+		final WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>(2);
+		expectTrue(deque.isEmpty() && deque.pop() == null && deque.steal() == null, "starts empty");
+		expectTrue(!deque.push(null), "Cannot push null");
+		for(int i = 0; i < 5; i++) {
+			deque.push(i); //grows twice
+		}
+		expectTrue(deque.size() == 5, "push() grows the array");
+		expectTrue(deque.pop() == 4 && deque.pop() == 3, "the owner pops the newest items");
+		expectTrue(deque.steal() == 0 && deque.steal() == 1, "the thieves steal the oldest items");
+		expectTrue(deque.pop() == 2 && deque.pop() == null && deque.steal() == null, "the last item");
+		expectTrue(deque.retained() == 0, "the array keeps no reference to the items taken");
+		for(int i = 0; i < 6; i++) {
+			deque.push(i);
+		}
+		deque.steal();
+		deque.steal();
+		deque.pop();
+		expectTrue(deque.size() == 3 && deque.retained() == 3, "the owner clears the stolen slots on its next operation");
+		deque.push(6);
+		expectTrue(deque.retained() == 4 && deque.steal() == 2, "and the items pushed after are kept");
+
+		/*
+		 * Stress: the owner pushes and pops while the thieves steal, and
+		 * every item is taken exactly once
+		 */
+		final int items = 200_000;
+		final int thieves = 3;
+		final WorkStealingDeque<Integer> shared = new WorkStealingDeque<Integer>(16);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(items);
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final List<Thread> threads = new ArrayList<Thread>();
+		for(int i = 0; i < thieves; i++) {
+			threads.add(new Thread(() -> {
+				while(!done.get() || !shared.isEmpty()) {
+					final Integer item = shared.steal();
+					if(item != null) {
+						seen.incrementAndGet(item);
+					}else {
+						Thread.yield();
+					}
+				}
+			}));
+		}
+		for(final Thread thread : threads) {
+			thread.start();
+		}
+		for(int i = 0; i < items; i++) {
+			shared.push(i);
+			if(i % 3 == 0) { //the owner works on some of its items
+				final Integer item = shared.pop();
+				if(item != null) {
+					seen.incrementAndGet(item);
+				}
+			}
+		}
+		Integer item;
+		while((item = shared.pop()) != null) {
+			seen.incrementAndGet(item);
+		}
+		done.set(true);
+		for(final Thread thread : threads) {
+			thread.join();
+		}
+		boolean once = true;
+		for(int i = 0; i < items; i++) {
+			once &= seen.get(i) == 1;
+		}
+		expectTrue(once && shared.isEmpty(), "every item is taken exactly once");
+		shared.pop(); //clear the slots stolen after the last pop
+		expectTrue(shared.retained() == 0, "and no slot keeps an item taken");
+	}
+
+	private static void expectTrue(final boolean expectation, final String message) {
+		if(expectation) {
+			System.out.println("Success: " + message);
+		}else {
+			System.err.println("Error: " + message);
+		}
+	}
+
+}
@@ -0,0 +1,238 @@
+package datastructures.sorting.bycomparison;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Heap sort algorithm, in place.
+ * <p>
+ * It builds a max heap on the array itself (like {@code MaxHeap}, but
+ * starting from index 0), then it repeatedly moves the root (the max) to
+ * the end of the array and sifts down the new root on the remaining heap.
+ * <p>
+ * The sift down is the "bottom-up" variant (Floyd's trick): first we walk
+ * down to a leaf always following the larger children (one comparison per
+ * level), then we climb up until we find the place of the item. The item
+ * that we sift down comes from the bottom of the heap, so it usually goes
+ * back almost to the bottom, and this needs about half the comparisons of the
+ * classic sift down.
+ * <p>
+ * Runtime: O( N * log(N) ) on every case
+ * Memory: O(1)
+ * Not stable.
+ *
+ * @author David Perez
+ *
+ */
+public class HeapSort {
+
+	/**
+	 * Sort an array of ints in ascending order
+	 * @param arr
+	 * @return the same array, sorted
+	 */
+	public static int[] sort(final int[] arr) {
+		final int n = arr.length;
+		for(int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(arr, i, n);
+		}
+		for(int end = n - 1; end > 0; end--) {
+			final int max = arr[0];
+			arr[0] = arr[end];
+			arr[end] = max;
+			siftDown(arr, 0, end);
+		}
+		return arr;
+	}
+
+	/**
+	 * Sort an array of longs in ascending order
+	 * @param arr
+	 * @return the same array, sorted
+	 */
+	public static long[] sort(final long[] arr) {
+		final int n = arr.length;
+		for(int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(arr, i, n);
+		}
+		for(int end = n - 1; end > 0; end--) {
+			final long max = arr[0];
+			arr[0] = arr[end];
+			arr[end] = max;
+			siftDown(arr, 0, end);
+		}
+		return arr;
+	}
+
+	/**
+	 * Sort an array of objects in the ascending order given by the comparator
+	 * @param arr
+	 * @param comparator
+	 * @return the same array, sorted
+	 */
+	public static <T> T[] sort(final T[] arr, final Comparator<? super T> comparator) {
+		final int n = arr.length;
+		for(int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(arr, i, n, comparator);
+		}
+		for(int end = n - 1; end > 0; end--) {
+			final T max = arr[0];
+			arr[0] = arr[end];
+			arr[end] = max;
+			siftDown(arr, 0, end, comparator);
+		}
+		return arr;
+	}
+
+	/**
+	 * Bottom-up sift down of {@code arr[node]} on the heap {@code arr[0..size)}
+	 * @param arr
+	 * @param node index of the node to sift down
+	 * @param size size of the heap
+	 */
+	private static void siftDown(final int[] arr, final int node, final int size) {
+		final int item = arr[node];
+
+		//walk down to a leaf following the larger children
+		int leaf = node;
+		int children;
+		while((children = 2 * leaf + 1) < size) {
+			if(children + 1 < size && arr[children + 1] > arr[children]) {
+				children++;
+			}
+			leaf = children;
+		}
+
+		//climb up until we find an item bigger or equal than ours
+		//(it stops on the node itself at the latest)
+		while(arr[leaf] < item) {
+			leaf = (leaf - 1) / 2;
+		}
+
+		//put the item there, moving the path above it one level up
+		int moving = arr[leaf];
+		arr[leaf] = item;
+		while(leaf > node) {
+			leaf = (leaf - 1) / 2;
+			final int temp = arr[leaf];
+			arr[leaf] = moving;
+			moving = temp;
+		}
+	}
+
+	/**
+	 * {@inheritDoc HeapSort#siftDown(int[], int, int)}
+	 */
+	private static void siftDown(final long[] arr, final int node, final int size) {
+		final long item = arr[node];
+
+		int leaf = node;
+		int children;
+		while((children = 2 * leaf + 1) < size) {
+			if(children + 1 < size && arr[children + 1] > arr[children]) {
+				children++;
+			}
+			leaf = children;
+		}
+
+		while(arr[leaf] < item) {
+			leaf = (leaf - 1) / 2;
+		}
+
+		long moving = arr[leaf];
+		arr[leaf] = item;
+		while(leaf > node) {
+			leaf = (leaf - 1) / 2;
+			final long temp = arr[leaf];
+			arr[leaf] = moving;
+			moving = temp;
+		}
+	}
+
+	/**
+	 * {@inheritDoc HeapSort#siftDown(int[], int, int)}
+	 */
+	private static <T> void siftDown(final T[] arr, final int node, final int size,
+			final Comparator<? super T> comparator) {
+		final T item = arr[node];
+
+		int leaf = node;
+		int children;
+		while((children = 2 * leaf + 1) < size) {
+			if(children + 1 < size && comparator.compare(arr[children + 1], arr[children]) > 0) {
+				children++;
+			}
+			leaf = children;
+		}
+
+		while(comparator.compare(arr[leaf], item) < 0) {
+			leaf = (leaf - 1) / 2;
+		}
+
+		T moving = arr[leaf];
+		arr[leaf] = item;
+		while(leaf > node) {
+			leaf = (leaf - 1) / 2;
+			final T temp = arr[leaf];
+			arr[leaf] = moving;
+			moving = temp;
+		}
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		assertTrue(sort(new int[] {}).length == 0, "sort an empty array");
+		assertTrue(Arrays.equals(sort(new int[] {7}), new int[] {7}), "sort one item");
+		assertTrue(Arrays.equals(sort(new int[] {64, 25, 12, 22, 11}), new int[] {11, 12, 22, 25, 64}),
+				"sort ints");
+		assertTrue(Arrays.equals(sort(new int[] {3, 1, 3, 1, 3}), new int[] {1, 1, 3, 3, 3}),
+				"sort with duplicates");
+		assertTrue(Arrays.equals(sort(new int[] {1, 2, 3, 4}), new int[] {1, 2, 3, 4}),
+				"sort an already sorted array");
+
+		final Random random = new Random(42);
+		boolean ints = true;
+		boolean longs = true;
+		boolean objects = true;
+		for(int n = 0; n < 200; n++) {
+			final int[] a = random.ints(n, -50, 50).toArray();
+			final int[] expectedA = a.clone();
+			Arrays.sort(expectedA);
+			ints &= Arrays.equals(sort(a), expectedA);
+
+			final long[] b = random.longs(n).toArray();
+			final long[] expectedB = b.clone();
+			Arrays.sort(expectedB);
+			longs &= Arrays.equals(sort(b), expectedB);
+
+			final Integer[] c = new Integer[n];
+			for(int i = 0; i < n; i++) {
+				c[i] = a[i];
+			}
+			final Integer[] expectedC = c.clone();
+			Arrays.sort(expectedC, Comparator.reverseOrder());
+			objects &= Arrays.equals(sort(c, Comparator.reverseOrder()), expectedC);
+		}
+		assertTrue(ints, "sort random int arrays");
+		assertTrue(longs, "sort random long arrays");
+		assertTrue(objects, "sort random arrays with a comparator");
+
+		assertTrue(Arrays.equals(sort(new long[] {Long.MAX_VALUE, 0, Long.MIN_VALUE}),
+				new long[] {Long.MIN_VALUE, 0, Long.MAX_VALUE}), "sort longs on the limits");
+		assertTrue(Arrays.equals(sort(new String[] {"c", "a", "b"}, Comparator.naturalOrder()),
+				new String[] {"a", "b", "c"}), "sort strings");
+	}
+
+	private static void assertTrue(final boolean val, final String msg) {
+		if(val) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Fail: " + msg);
+		}
+	}
+
+}
@@ -0,0 +1,506 @@
+package datastructures.tree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Max heap stored outside of the Java heap, on a memory-mapped file.
+ * <p>
+ * Each entry is a {@code long} priority plus a payload of a fixed number of
+ * bytes. Since the entries are not Java objects, the garbage collector
+ * doesn't have to trace them, so the heap can hold hundreds of millions of
+ * entries without long GC pauses, and it can be bigger than the Java heap.
+ * <p>
+ * File layout:
+ * <pre>
+ * | header (HEADER_BYTES) | entry 0 | entry 1 | ... | entry size-1 |
+ * entry = | priority (8 bytes) | payload (payloadSize bytes) |
+ * </pre>
+ * Unlike {@code MaxHeap}, the heap array starts at index 0 (children of i are
+ * 2i+1 and 2i+2) so no space of the file is wasted.
+ * <p>
+ * A single mapping cannot be bigger than 2GB, so the entries are mapped on
+ * segments that hold a whole number of entries. The file grows one segment at
+ * a time and never shrinks.
+ * <p>
+ * The size is written on the header on every operation, so after
+ * {@code MappedMaxHeap#flush()} or {@code MappedMaxHeap#close()} the heap can
+ * be reopened after a restart without rebuilding it.
+ * It is not thread-safe.
+ *
+ * @author David Perez
+ *
+ */
+public class MappedMaxHeap implements Closeable {
+
+	/**
+	 * Identifies our files
+	 */
+	private static final int MAGIC = 0x4D584850; //"MXHP"
+
+	/**
+	 * Version of the file layout
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Bytes reserved for the header: magic, version, payload size and heap size
+	 */
+	private static final int HEADER_BYTES = 64;
+
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int PAYLOAD_SIZE_OFFSET = 8;
+	private static final int SIZE_OFFSET = 16;
+
+	/**
+	 * Bytes of the priority on each entry
+	 */
+	private static final int PRIORITY_BYTES = Long.BYTES;
+
+	/**
+	 * Approximate size of each mapped segment
+	 */
+	private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+
+	/**
+	 * The file
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The mapped header
+	 */
+	private final MappedByteBuffer header;
+
+	/**
+	 * The mapped segments with the entries
+	 */
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+
+	/**
+	 * Bytes of the payload of each entry
+	 */
+	private final int payloadSize;
+
+	/**
+	 * Bytes of each entry (priority plus payload)
+	 */
+	private final int entrySize;
+
+	/**
+	 * Entries of each segment
+	 */
+	private final int segmentEntries;
+
+	/**
+	 * Entry that is being sifted
+	 */
+	private final byte[] item;
+
+	/**
+	 * Entry that is being moved
+	 */
+	private final byte[] moving;
+
+	/**
+	 * Number of entries of the heap
+	 */
+	private long size;
+
+	/**
+	 * Open a heap file, or create it if it doesn't exist
+	 * @param file
+	 * @param payloadSize bytes of the payload of each entry
+	 * @throws IOException if the file cannot be mapped, or if it is not a
+	 * heap file with the same payload size
+	 */
+	public MappedMaxHeap(final Path file, final int payloadSize) throws IOException {
+		this(file, payloadSize, Math.max(1, SEGMENT_BYTES / (PRIORITY_BYTES + payloadSize)));
+	}
+
+	/**
+	 * {@inheritDoc MappedMaxHeap#MappedMaxHeap(Path, int)}
+	 * @param segmentEntries entries of each mapped segment. It doesn't
+	 * change the file layout, only how it is mapped.
+	 */
+	private MappedMaxHeap(final Path file, final int payloadSize, final int segmentEntries) throws IOException {
+		if(payloadSize < 0) {
+			throw new IllegalArgumentException("Payload size cannot be negative, got " + payloadSize);
+		}
+		this.payloadSize = payloadSize;
+		this.entrySize = PRIORITY_BYTES + payloadSize;
+		this.segmentEntries = segmentEntries;
+		this.item = new byte[this.entrySize];
+		this.moving = new byte[this.entrySize];
+
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			final boolean created = this.channel.size() == 0;
+			this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+			if(created) {
+				this.header.putInt(MAGIC_OFFSET, MAGIC);
+				this.header.putInt(VERSION_OFFSET, VERSION);
+				this.header.putInt(PAYLOAD_SIZE_OFFSET, payloadSize);
+				this.header.putLong(SIZE_OFFSET, 0);
+			}else {
+				checkHeader(file);
+			}
+			this.size = this.header.getLong(SIZE_OFFSET);
+			while(capacity() < this.size) {
+				addSegment();
+			}
+		} catch (IOException | RuntimeException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Verify if the heap is empty
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Number of entries of the heap
+	 * @return
+	 */
+	public long size() {
+		return this.size;
+	}
+
+	/**
+	 * Bytes of the payload of each entry
+	 * @return
+	 */
+	public int payloadSize() {
+		return this.payloadSize;
+	}
+
+	/**
+	 * Insert an entry.
+	 * Runtime: O(log(N))
+	 * @param priority bigger value means higher priority
+	 * @param payload up to {@code payloadSize()} bytes. Shorter payloads are
+	 * filled with zeros. It can be null for an empty payload.
+	 * @throws IOException if the file cannot grow
+	 */
+	public void insert(final long priority, final byte[] payload) throws IOException {
+		if(payload != null && payload.length > this.payloadSize) {
+			throw new IllegalArgumentException("Payload of " + payload.length
+					+ " bytes, but the maximum is " + this.payloadSize);
+		}
+		if(this.size == capacity()) {
+			addSegment();
+		}
+
+		putPriority(this.item, priority);
+		Arrays.fill(this.item, PRIORITY_BYTES, this.entrySize, (byte) 0);
+		if(payload != null) {
+			System.arraycopy(payload, 0, this.item, PRIORITY_BYTES, payload.length);
+		}
+
+		setSize(this.size + 1);
+		siftUp(this.size - 1);
+	}
+
+	/**
+	 * Get the max priority, without removing it
+	 * Runtime: O(1)
+	 * @return
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public long findMax() {
+		if(isEmpty()) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		return priority(0);
+	}
+
+	/**
+	 * Remove the entry with the max priority.
+	 * Runtime: O(log(N))
+	 * @param payload where to copy the payload of the entry (at least
+	 * {@code payloadSize()} bytes), or null if we don't need it
+	 * @return the priority of the entry
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public long extractMax(final byte[] payload) {
+		if(isEmpty()) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+
+		final long max = priority(0);
+		if(payload != null) {
+			segment(0).get(offset(0) + PRIORITY_BYTES, payload, 0, this.payloadSize);
+		}
+
+		//move the last entry as root, then sift it down
+		final long last = this.size - 1;
+		setSize(last);
+		if(last > 0) {
+			read(last, this.item);
+			siftDown(0);
+		}
+		return max;
+	}
+
+	/**
+	 * Write the changes to the storage device
+	 */
+	public void flush() {
+		this.header.force();
+		for(final MappedByteBuffer segment : this.segments) {
+			segment.force();
+		}
+	}
+
+	/**
+	 * Flush and close the file. The mapped memory is released when the
+	 * buffers are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(!this.channel.isOpen()) {
+			return;
+		}
+		flush();
+		this.channel.close();
+	}
+
+	/**
+	 * Bubble up the entry kept on {@code MappedMaxHeap#item}, starting on
+	 * the given index. Like {@code MaxHeap}, it moves the parents down and
+	 * writes the entry only on its final position.
+	 * @param node
+	 */
+	private void siftUp(long node) {
+		final long priority = getPriority(this.item);
+		while(node > 0) {
+			final long parent = (node - 1) / 2;
+			if(priority <= priority(parent)) {
+				break;
+			}
+			move(parent, node);
+			node = parent;
+		}
+		write(node, this.item);
+	}
+
+	/**
+	 * Bubble down the entry kept on {@code MappedMaxHeap#item}, starting on
+	 * the given index.
+	 * @param node
+	 */
+	private void siftDown(long node) {
+		final long priority = getPriority(this.item);
+		long children;
+		while((children = 2 * node + 1) < this.size) {
+			if(children + 1 < this.size && priority(children + 1) > priority(children)) {
+				children++;
+			}
+			if(priority >= priority(children)) {
+				break;
+			}
+			move(children, node);
+			node = children;
+		}
+		write(node, this.item);
+	}
+
+	/**
+	 * Copy an entry to another index
+	 * @param from
+	 * @param to
+	 */
+	private void move(final long from, final long to) {
+		read(from, this.moving);
+		write(to, this.moving);
+	}
+
+	private void read(final long index, final byte[] entry) {
+		segment(index).get(offset(index), entry, 0, this.entrySize);
+	}
+
+	private void write(final long index, final byte[] entry) {
+		segment(index).put(offset(index), entry, 0, this.entrySize);
+	}
+
+	private long priority(final long index) {
+		return segment(index).getLong(offset(index));
+	}
+
+	private MappedByteBuffer segment(final long index) {
+		return this.segments.get((int) (index / this.segmentEntries));
+	}
+
+	private int offset(final long index) {
+		return (int) (index % this.segmentEntries) * this.entrySize;
+	}
+
+	/**
+	 * Entries that fit on the mapped segments
+	 * @return
+	 */
+	private long capacity() {
+		return (long) this.segments.size() * this.segmentEntries;
+	}
+
+	/**
+	 * Map one more segment at the end of the file (it grows the file)
+	 * @throws IOException
+	 */
+	private void addSegment() throws IOException {
+		final long segmentBytes = (long) this.segmentEntries * this.entrySize;
+		final long position = HEADER_BYTES + this.segments.size() * segmentBytes;
+		this.segments.add(this.channel.map(FileChannel.MapMode.READ_WRITE, position, segmentBytes));
+	}
+
+	private void setSize(final long size) {
+		this.size = size;
+		this.header.putLong(SIZE_OFFSET, size);
+	}
+
+	/**
+	 * Verify that the file was created by this class, with our payload size
+	 * @param file
+	 * @throws IOException
+	 */
+	private void checkHeader(final Path file) throws IOException {
+		if(this.header.getInt(MAGIC_OFFSET) != MAGIC) {
+			throw new IOException(file + " is not a heap file");
+		}
+		if(this.header.getInt(VERSION_OFFSET) != VERSION) {
+			throw new IOException(file + " has an unsupported version " + this.header.getInt(VERSION_OFFSET));
+		}
+		if(this.header.getInt(PAYLOAD_SIZE_OFFSET) != this.payloadSize) {
+			throw new IOException(file + " has a payload of " + this.header.getInt(PAYLOAD_SIZE_OFFSET)
+					+ " bytes, expected " + this.payloadSize);
+		}
+	}
+
+	/**
+	 * Read the priority of an entry kept on an array, big-endian like
+	 * {@code ByteBuffer}
+	 */
+	private static long getPriority(final byte[] entry) {
+		long priority = 0;
+		for(int i = 0; i < PRIORITY_BYTES; i++) {
+			priority = (priority << 8) | (entry[i] & 0xFF);
+		}
+		return priority;
+	}
+
+	/**
+	 * Write the priority of an entry kept on an array, big-endian like
+	 * {@code ByteBuffer}
+	 */
+	private static void putPriority(final byte[] entry, long priority) {
+		for(int i = PRIORITY_BYTES - 1; i >= 0; i--) {
+			entry[i] = (byte) priority;
+			priority >>>= 8;
+		}
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) throws IOException {
+		final Path file = Files.createTempFile("maxheap", ".bin");
+		Files.delete(file); //start from a file that doesn't exist
+		try {
+			final Random random = new Random(3);
+			final long[] priorities = random.longs(1000).toArray();
+			priorities[10] = Long.MIN_VALUE;
+			priorities[20] = Long.MAX_VALUE;
+
+			//tiny segments, to test entries on many segments
+			try(MappedMaxHeap heap = new MappedMaxHeap(file, 4, 7)) {
+				assertTrue(heap.isEmpty(), "a new heap is empty");
+				try {
+					heap.extractMax(null);
+					assertTrue(false, "extractMax() on an empty heap should fail");
+				} catch (NoSuchElementException e) {
+					assertTrue(true, "extractMax() on an empty heap fails");
+				}
+				try {
+					heap.insert(1, new byte[5]);
+					assertTrue(false, "a big payload should be rejected");
+				} catch (IllegalArgumentException e) {
+					assertTrue(true, "a big payload is rejected");
+				}
+
+				for(final long priority : priorities) {
+					heap.insert(priority, intToBytes((int) priority));
+				}
+				assertTrue(heap.size() == priorities.length, "size after inserts");
+				assertTrue(heap.findMax() == Long.MAX_VALUE, "findMax()");
+
+				final byte[] payload = new byte[4];
+				final long[] sorted = priorities.clone();
+				Arrays.sort(sorted);
+				boolean ordered = true;
+				for(int i = 0; i < 500; i++) {
+					final long max = heap.extractMax(payload);
+					ordered &= max == sorted[sorted.length - 1 - i];
+					ordered &= bytesToInt(payload) == (int) max;
+				}
+				assertTrue(ordered, "extracts in descending order with its payload");
+			}
+
+			//reopen without rebuilding, with a different mapping
+			try(MappedMaxHeap heap = new MappedMaxHeap(file, 4)) {
+				assertTrue(heap.size() == 500, "reopened heap keeps its size");
+				final long[] sorted = priorities.clone();
+				Arrays.sort(sorted);
+				boolean ordered = true;
+				for(int i = 500; i < sorted.length; i++) {
+					ordered &= heap.extractMax(null) == sorted[sorted.length - 1 - i];
+				}
+				assertTrue(ordered && heap.isEmpty(), "reopened heap keeps the order");
+				heap.insert(5, null);
+				assertTrue(heap.findMax() == 5, "insert without payload");
+			}
+
+			try(MappedMaxHeap heap = new MappedMaxHeap(file, 8)) {
+				assertTrue(false, "reopening with another payload size should fail, opened with " + heap.size() + " items");
+			} catch (IOException e) {
+				assertTrue(true, "reopening with another payload size fails");
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static byte[] intToBytes(final int value) {
+		return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+	}
+
+	private static int bytesToInt(final byte[] bytes) {
+		return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+	}
+
+	private static void assertTrue(final boolean val, final String msg) {
+		if(val) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Fail: " + msg);
+		}
+	}
+
+}
@@ -2,7 +2,9 @@ package datastructures.tree;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Class used for Priority Queue tests.
@@ -82,17 +84,47 @@ class Node implements Comparable<Node>{
  *
  * @param <T>
  */
-public class MaxHeap<T extends Comparable<T>> {
+public class MaxHeap<T extends Comparable<T>> implements MaxPriorityQueue<T> {
 	
 	/**
 	 * Heap array
 	 */
 	private List<T> heap;
 	
+	/**
+	 * When true, the internal index checks are executed on every operation.
+	 * Useful for debugging. By default it is disabled because the indexes
+	 * used internally are always valid by construction, and without the checks
+	 * the sift loops are small enough to be inlined by the JIT.
+	 */
+	private final boolean validate;
+	
+	/**
+	 * True when the JVM runs with
+	 * {@code -Ddatastructures.tree.MaxHeap.instrumented=true}.
+	 * It is static and final, so when it is false the JIT removes every
+	 * {@code if(INSTRUMENTED)} block and the instrumentation costs nothing.
+	 */
+	private static final boolean INSTRUMENTED = Boolean.getBoolean("datastructures.tree.MaxHeap.instrumented");
+	
+	/**
+	 * Receives the events of the heap, only used when {@code INSTRUMENTED}
+	 */
+	private MaxHeapListener listener;
+	
 	/**
 	 * On the constructor I create a heap array and setup it to start from index 1
 	 */
 	public MaxHeap() {
+		this(false);
+	}
+	
+	/**
+	 * {@inheritDoc MaxHeap#MaxHeap()}
+	 * @param validate true to enable the debug/validation mode
+	 */
+	public MaxHeap(final boolean validate) {
+		this.validate = validate;
 		this.heap = new ArrayList<>();
 
 		//null because we will not use the index zero 
@@ -100,22 +132,75 @@ public class MaxHeap<T extends Comparable<T>> {
 		this.heap.add(null); 
 	}
 	
+	/**
+	 * Verify if the instrumentation is enabled on this JVM
+	 * @return
+	 */
+	public static boolean isInstrumented() {
+		return INSTRUMENTED;
+	}
+	
+	/**
+	 * Set the listener of the events of this heap, e.g. {@code MaxHeapMetrics}
+	 * @param listener the listener, or null to stop listening
+	 * @throws IllegalStateException if the instrumentation is not enabled,
+	 * because the listener would never be called
+	 */
+	public void setListener(final MaxHeapListener listener) {
+		if(!INSTRUMENTED) {
+			throw new IllegalStateException("Run with -Ddatastructures.tree.MaxHeap.instrumented=true to listen the heap events");
+		}
+		this.listener = listener;
+	}
+	
 	/**
 	 * Create a heap from an array.
-	 * Runtime O(N*log(N))
+	 * Runtime O(N), see {@code MaxHeap#insertAll(Collection)}
 	 * @param arr
-	 * @throws Exception
+	 * @throws IllegalStateException if the heap is not empty
 	 */
-	public void heapify(final T... arr) throws Exception {
+	public void heapify(final T... arr) {
 		if(!isEmpty()) {
-			throw new Exception("this method works only if the heap is empty");
+			throw new IllegalStateException("this method works only if the heap is empty");
 		}
 		if(arr == null) {
 			return;
 		}
 		
-		for(int i = 0; i < arr.length; i++) {
-			insert(arr[i]);
+		insertAll(arr);
+	}
+	
+	/**
+	 * Insert a batch of items.
+	 * {@inheritDoc MaxHeap#insertAll(Collection)}
+	 * @param items
+	 */
+	public void insertAll(final T[] items) {
+		insertAll(Arrays.asList(items));
+	}
+	
+	/**
+	 * Insert a batch of items.
+	 * When the batch is at least as big as the heap, it is cheaper to
+	 * append all the items and rebuild the heap in O(N+K) than to sift
+	 * up each one of them in O(K*log(N+K)).
+	 * @param items
+	 */
+	public void insertAll(final Collection<? extends T> items) {
+		if(items.size() < size()) {
+			for(final T item : items) {
+				insert(item);
+			}
+			return;
+		}
+		
+		this.heap.addAll(items);
+		sortHeap();
+		
+		if(INSTRUMENTED && this.listener != null) {
+			for(int i = items.size() - 1; i >= 0; i--) {
+				this.listener.onInsert(last() - i);
+			}
 		}
 	}
 
@@ -124,6 +209,7 @@ public class MaxHeap<T extends Comparable<T>> {
 	 * Runtime O(1)
 	 * @return true if the heap is empty, otherwise, false.
 	 */
+	@Override
 	public boolean isEmpty() {
 		return last() == 0;
 	}
@@ -132,6 +218,7 @@ public class MaxHeap<T extends Comparable<T>> {
 	 * Get the size of the heap
 	 * @return number of nodes of the heap
 	 */
+	@Override
 	public int size() {
 		return last();
 	}
@@ -140,86 +227,176 @@ public class MaxHeap<T extends Comparable<T>> {
 	 * Insert item to tail of the the heap array.
 	 * Runtime: O(log(N))
 	 * @param item Object to be inserted. Implements {@code Comparable}
-	 * @throws Exception 
 	 */
-	public void insert(final T item) throws Exception {
+	@Override
+	public void insert(final T item) {
 		//add the data to the tail of the heap (last node of the tree) in order to
 		//always have a complete binary tree so the heap property is always maintained
 		this.heap.add(item);
 				
 		//now I need to bubble up the inserted item to fix the heap property
-		try {
-			siftUp(last());
-		} catch (Exception e) {
-			throw new Exception("Insert error " + e.getMessage());
+		siftUp(last());
+		
+		if(INSTRUMENTED && this.listener != null) {
+			this.listener.onInsert(last());
 		}
-				
 	}
 
 	/**
 	 * Find the maximum item of the heap
 	 * @return the root node of the heap tree
 	 */
+	@Override
 	public T findMax() {
 		return this.heap.get(1);
 	}
 
 	/**
 	 * Returns the maximum value from the heap after removing form the heap.
-	 * Runtime O(N*log(N)) with the actual sortHeap implementation.
+	 * Runtime O(log(N)), because only the new root can break the heap property.
 	 * @return the maximum value
-	 * @throws Exception
+	 * @throws NoSuchElementException if the heap is empty
 	 */
-	public T extractMax() throws Exception {
+	@Override
+	public T extractMax() {
 		if(isEmpty()) {
-			throw new Exception("Heap is emtpy");
+			throw new NoSuchElementException("Heap is emtpy");
 		}
 		
 		final T max = this.heap.get(1); //get a reference the max node (root)
-		swap(1, last()); //move the last node as root
-		this.heap.remove(last()); //then delete the max;
-		
-		sortHeap();
+		final T tail = this.heap.remove(last()); //then delete the last node...
+		if(!isEmpty()) {
+			this.heap.set(1, tail); //...and move it as root
+			siftDown(1);
+		}
 		
+		if(INSTRUMENTED && this.listener != null) {
+			this.listener.onExtract(last());
+		}
 		return max;
 	}
+	
+	/**
+	 * Remove the n max items of the heap.
+	 * {@inheritDoc MaxHeap#drainTo(Collection, int)}
+	 * @param n
+	 * @return the items, from the max to the min
+	 */
+	public List<T> extractTopN(final int n) {
+		final List<T> items = new ArrayList<T>(Math.max(0, Math.min(n, size())));
+		drainTo(items, n);
+		return items;
+	}
+	
+	/**
+	 * Remove up to maxItems of the max items of the heap and add them to the
+	 * collection, from the max to the min, like {@code BlockingQueue#drainTo}.
+	 * <p>
+	 * It is a partial heap sort: each max is swapped with the last item of
+	 * the heap and the heap shrinks by one, so the extracted items stay at the
+	 * tail of the array, and we remove all of them at once at the end.
+	 * If the collection rejects an item (e.g. a bounded collection that is
+	 * full), that item and the ones not added yet are sifted up back into
+	 * the heap before the exception is thrown, so the heap stays valid.
+	 * Runtime: O(maxItems*log(N))
+	 * @param collection
+	 * @param maxItems
+	 * @return number of items moved to the collection
+	 * @throws IllegalArgumentException if the collection is this heap
+	 */
+	public int drainTo(final Collection<? super T> collection, final int maxItems) {
+		if(collection == this.heap) {
+			throw new IllegalArgumentException("Cannot drain the heap to itself");
+		}
+		final int n = Math.min(maxItems, size());
+		if(n <= 0) {
+			return 0;
+		}
+		
+		final int last = last();
+		int end = last;
+		for(int i = 0; i < n; i++) {
+			swap(1, end);
+			end--;
+			if(end > 1) {
+				siftDown(1, end);
+			}
+			if(INSTRUMENTED && this.listener != null) {
+				this.listener.onExtract(end);
+			}
+		}
+		
+		//the first max is at the end of the array
+		int i = last;
+		try {
+			for(; i > end; i--) {
+				collection.add(this.heap.get(i));
+			}
+		} finally {
+			this.heap.subList(i + 1, last + 1).clear();
+			//the items that the collection didn't take go back to the heap
+			for(int k = end + 1; k <= i; k++) {
+				siftUp(k);
+			}
+		}
+		return n;
+	}
 
 	/**
-	 * Sort the heap 
- 	 * Runtime: O(N*log(N))
-	 * @throws Exception
+	 * Sort the heap, i.e. restore the heap property on the whole array.
+	 * The items are not left in sorted order: for a heap sort see
+	 * {@code datastructures.sorting.bycomparison.HeapSort}.
+	 * <p>
+	 * It sifts down every node that is not a leaf, from the bottom to the
+	 * root, so when we sift down a node its two subtrees are already heaps.
+ 	 * Runtime: O(N)
 	 */
-	public void sortHeap() throws Exception {
+	public void sortHeap() {
 		if(isEmpty()) {
 			return;
 		}
 		
-		for(int i = 1; i <= last(); i++) {
+		for(int i = getParent(last()); i >= 1; i--) {
 			siftDown(i);
 		}
 	}
 	
 	/**
 	 * Bubble up a node as long as needed to restore the heap property.
+	 * Instead of swapping on every level, the item is kept aside and the
+	 * parents are moved down until we find the hole where it fits.
 	 * @param node index of the node
-	 * @throws Exception
 	 */
 	/*
 	 * Internally, sometimes I refer to this operation as 'bubble up'
 	 */
-	private void siftUp(final int node) throws Exception{
-		checkIndexRange(node);
-		
-		if(isRoot(node)) {
-			return; //to stop the recursion
+	private void siftUp(int node) {
+		if(this.validate) {
+			checkIndexRange(node);
 		}
 		
-		final int parent = getParent(node);
-		final T parentNode = this.heap.get(parent);
+		int depth = 0;
+		int compares = 0;
 		final T currentNode = this.heap.get(node);
-		if(currentNode.compareTo(parentNode) > 0) {
-			swap(parent, node);
-			siftUp(parent);
+		while(!isRoot(node)) {
+			final int parent = getParent(node);
+			final T parentNode = this.heap.get(parent);
+			if(INSTRUMENTED) {
+				compares++;
+			}
+			if(currentNode.compareTo(parentNode) <= 0) {
+				break;
+			}
+			this.heap.set(node, parentNode);
+			node = parent;
+			if(INSTRUMENTED) {
+				depth++;
+			}
+		}
+		this.heap.set(node, currentNode);
+		
+		if(INSTRUMENTED && this.listener != null) {
+			this.listener.onSiftUp(depth, compares);
 		}
 	}
 
@@ -227,11 +404,10 @@ public class MaxHeap<T extends Comparable<T>> {
 	 * Swap elements of the heap array
 	 * @param a index of the first element
 	 * @param b index of the second element
-	 * @throws Exception 
 	 */
-	private void swap(final int a, final int b) throws Exception {
-		if(a < 1 || b < 1) {
-			throw new Exception("Index out of boundary for swap("+a+","+b+")");
+	private void swap(final int a, final int b) {
+		if(this.validate && (a < 1 || b < 1)) {
+			throw new IndexOutOfBoundsException("Index out of boundary for swap("+a+","+b+")");
 		}
 		final T temp = this.heap.get(a);
 		this.heap.set(a, heap.get(b));
@@ -243,9 +419,9 @@ public class MaxHeap<T extends Comparable<T>> {
 	 * @param index Index of the node to process
 	 * @return Index of the parent node, or zero if not exist
 	 */
-	private int getParent(final int index) throws Exception {
-		if(index < 1) {
-			throw new Exception("Index out of boundary a["+index+"], cannot get the parent for this.");	
+	private int getParent(final int index) {
+		if(this.validate && index < 1) {
+			throw new IndexOutOfBoundsException("Index out of boundary a["+index+"], cannot get the parent for this.");	
 		}
 		
 		/*
@@ -283,40 +459,68 @@ public class MaxHeap<T extends Comparable<T>> {
 
 	/**
 	 * Bubble down a node as long as needed to restore the heap property.
+	 * Like {@code MaxHeap#siftUp(int)}, it moves the children up and
+	 * writes the item only once, on its final position.
 	 * @param node index of the node
-	 * @throws Exception
 	 */
 	/*
 	 * Internally, sometimes I refer to this operation as 'bubble down'
 	 */
-	private void siftDown(final int node) throws Exception {
-		checkIndexRange(node);
-		
-		if(isLeaf(node)) {
-			return; //to stop the recursion
+	private void siftDown(final int node) {
+		siftDown(node, last());
+	}
+	
+	/**
+	 * {@inheritDoc MaxHeap#siftDown(int)}
+	 * @param node index of the node
+	 * @param last index of the last node of the heap, so we can sift on
+	 * a part of the heap array
+	 */
+	private void siftDown(int node, final int last) {
+		if(this.validate) {
+			checkIndexRange(node);
 		}
-
-		//by default we compare for bubble down to the left children
-		int children = getLeftChildren(node);
-		
-		//...but
-		if(hasRightChildren(children)) {
-			final T left = this.heap.get(children);
-			final T right = this.heap.get(children+1);
-			if(left.compareTo(right) <= 0) {
-				//then we will compare for bubble down with
-				//the right children (that's why we increase
-				//the index by 1)
-				children++;
+		
+		int depth = 0;
+		int compares = 0;
+		final T currentNode = this.heap.get(node);
+		while(!isLeaf(node, last)) {
+			//by default we compare for bubble down to the left children
+			int children = getLeftChildren(node);
+			
+			//...but
+			if(hasRightChildren(children, last)) {
+				final T left = this.heap.get(children);
+				final T right = this.heap.get(children+1);
+				if(INSTRUMENTED) {
+					compares++;
+				}
+				if(left.compareTo(right) <= 0) {
+					//then we will compare for bubble down with
+					//the right children (that's why we increase
+					//the index by 1)
+					children++;
+				}
+			}
+			
+			final T childrenNode = this.heap.get(children);
+			if(INSTRUMENTED) {
+				compares++;
+			}
+			if(currentNode.compareTo(childrenNode) >= 0) {
+				break;
+			}
+			this.heap.set(node, childrenNode);
+			node = children;
+			if(INSTRUMENTED) {
+				depth++;
 			}
 		}
+		this.heap.set(node, currentNode);
 		
-		final T childrenNode = this.heap.get(children);
-		final T currentNode = this.heap.get(node);
-		if(currentNode.compareTo(childrenNode) < 0) {
-			swap(children, node);
-			siftDown(children);
-		}		
+		if(INSTRUMENTED && this.listener != null) {
+			this.listener.onSiftDown(depth, compares);
+		}
 	}
 
 	/**
@@ -324,12 +528,20 @@ public class MaxHeap<T extends Comparable<T>> {
 	 * @return
 	 */
 	private boolean hasRightChildren(final int leftChildren) {
+		return hasRightChildren(leftChildren, last());
+	}
+	
+	/**
+	 * {@inheritDoc MaxHeap#hasRightChildren(int)}
+	 * @param last index of the last node
+	 */
+	private boolean hasRightChildren(final int leftChildren, final int last) {
 		/*
 		 * The comparison is as simple as this because we are
 		 * working with a balanced tree, where only the last leaf
 		 * node could potentially not have a right brother node
 		 */
-		return leftChildren < last();
+		return leftChildren < last;
 	}
 
 	/**
@@ -351,25 +563,33 @@ public class MaxHeap<T extends Comparable<T>> {
 	 * @return
 	 */
 	private boolean isLeaf(final int index) {
+		return isLeaf(index, last());
+	}
+	
+	/**
+	 * {@inheritDoc MaxHeap#isLeaf(int)}
+	 * @param last index of the last node
+	 */
+	private boolean isLeaf(final int index, final int last) {
 		/*
 		 * A leaf didn't have childrens, i.e., if getLeftChildren()
 		 * returns a value major than the size of the heap, then
 		 * it in fact didn't exist
 		 */
-		return (getLeftChildren(index)) > last();
+		return (getLeftChildren(index)) > last;
 	}
 
 	/**
-	 * Common exception handlers
+	 * Common index checks, used only on the validation mode
 	 * @param index
-	 * @throws Exception
+	 * @throws IndexOutOfBoundsException
 	 */
-	private void checkIndexRange(int index) throws Exception {
+	private void checkIndexRange(int index) {
 		if(index < 1) {
-			throw new Exception("Method input error. Index should be major than 1.");
+			throw new IndexOutOfBoundsException("Method input error. Index should be major than 1.");
 		}
 		if(index > last()) {
-			throw new Exception("Method input error. Index out of bondaries.");
+			throw new IndexOutOfBoundsException("Method input error. Index out of bondaries.");
 		}
 	}
 
@@ -398,7 +618,7 @@ public class MaxHeap<T extends Comparable<T>> {
 		 * When the heap is empty
 		 */
 		final List<Integer> mockHeadA = new ArrayList<Integer>();
-		final MaxHeap<Integer> maxHeap = new MaxHeap<Integer>();
+		final MaxHeap<Integer> maxHeap = new MaxHeap<Integer>(true);
 		assertEqual(maxHeap.last(), 0, "size of the heap");
 		try {
 			maxHeap.siftUp(-1);
@@ -505,7 +725,7 @@ public class MaxHeap<T extends Comparable<T>> {
 		 * Swap on the heap (created a new heap for this case)
 		 */
 		final List<String> mockHeadB = Arrays.asList(new String[] {null, "a", "b", "c"});
-		final MaxHeap<String> xHeap = new MaxHeap<String>();
+		final MaxHeap<String> xHeap = new MaxHeap<String>(true);
 		xHeap.setHeapForTest(mockHeadB);
 		try {
 			xHeap.swap(1, 2);
@@ -649,6 +869,90 @@ public class MaxHeap<T extends Comparable<T>> {
 			e.printStackTrace();
 		}
 		
+		/*
+		 * sortHeap() when the max is on a leaf
+		 */
+		final List<Integer> mockHeapD = new ArrayList<>(Arrays.asList(new Integer[] {null, 1, 2, 3, 4}));
+		final MaxHeap<Integer> heap4 = new MaxHeap<Integer>();
+		heap4.setHeapForTest(mockHeapD);
+		heap4.sortHeap();
+		assertEqual(mockHeapD, Arrays.asList(new Integer[] {null, 4, 2, 3, 1}), "sortHeap() from the bottom");
+		
+		/*
+		 * Batch operations
+		 */
+		final MaxHeap<Integer> batch = new MaxHeap<Integer>(true);
+		batch.insertAll(new Integer[] {5, 1, 9}); //rebuild, bigger than the heap
+		batch.insertAll(Arrays.asList(7)); //one by one, smaller than the heap
+		assertEqual(batch.size(), 4, "insertAll()");
+		batch.insertAll(Arrays.asList(3, 8, 2, 6, 4)); //rebuild again
+		assertEqual(batch.extractTopN(3), Arrays.asList(9, 8, 7), "extractTopN() returns the max items in order");
+		assertEqual(batch.size(), 6, "extractTopN() removes the items");
+		assertEqual(batch.findMax(), 6, "and the rest is still a heap");
+		final List<Integer> drained = new ArrayList<Integer>();
+		assertEqual(batch.drainTo(drained, 100), 6, "drainTo() is limited by the size of the heap");
+		assertEqual(drained, Arrays.asList(6, 5, 4, 3, 2, 1), "drainTo() in order");
+		assertTrue(batch.isEmpty(), "drainTo() of everything leaves the heap empty");
+		assertEqual(batch.drainTo(drained, 10), 0, "drainTo() of an empty heap");
+
+		final MaxHeap<Integer> bounded = new MaxHeap<Integer>();
+		bounded.insertAll(Arrays.asList(5, 1, 4, 2, 3));
+		final List<Integer> full = new ArrayList<Integer>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public boolean add(final Integer item) {
+				if(size() == 2) {
+					throw new IllegalStateException("Full");
+				}
+				return super.add(item);
+			}
+		};
+		try {
+			bounded.drainTo(full, 5);
+			assertTrue(false, "drainTo() a full collection should fail");
+		} catch (IllegalStateException e) {
+			assertEqual(full, Arrays.asList(5, 4), "drainTo() a full collection adds what fits");
+		}
+		assertEqual(bounded.extractTopN(10), Arrays.asList(3, 2, 1), "and the heap keeps the rest in order");
+		for(int i = 0; i < 40; i++) {
+			bounded.insert((i * 17) % 40);
+		}
+		full.clear();
+		try {
+			bounded.drainTo(full, 30);
+		} catch (IllegalStateException e) {
+			//the rejected items went back between the ones that were not drained
+		}
+		final List<Integer> rest = bounded.extractTopN(40);
+		boolean sorted = rest.size() == 38 && rest.get(0) == 37;
+		for(int i = 1; i < rest.size(); i++) {
+			sorted &= rest.get(i - 1) > rest.get(i);
+		}
+		assertTrue(sorted, "drainTo() that fails half way leaves a valid heap");
+		try {
+			bounded.drainTo(bounded.heap, 1);
+			assertTrue(false, "drainTo() itself should fail");
+		} catch (IllegalArgumentException e) {
+			assertTrue(true, "drainTo() itself fails");
+		}
+		assertTrue(batch.extractTopN(-1).isEmpty(), "extractTopN() of a negative number");
+		
+		final MaxHeap<Integer> big = new MaxHeap<Integer>();
+		final List<Integer> values = new ArrayList<Integer>();
+		for(int i = 0; i < 1000; i++) {
+			values.add((i * 7919) % 1009);
+		}
+		big.insertAll(values);
+		big.insertAll(values.subList(0, 10));
+		final List<Integer> top = big.extractTopN(500);
+		boolean ordered = true;
+		for(int i = 1; i < top.size(); i++) {
+			ordered &= top.get(i - 1) >= top.get(i);
+		}
+		ordered &= top.get(top.size() - 1) >= big.findMax();
+		assertTrue(ordered && big.size() == 510, "extractTopN() on a big heap");
+		
 	}
 	
 	private static void assertSuccess(final String msg) {
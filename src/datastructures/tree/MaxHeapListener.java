@@ -0,0 +1,44 @@
+package datastructures.tree;
+
+/**
+ * Receives the events of a {@code MaxHeap}, to measure how the heap is used.
+ * <p>
+ * The events are only delivered when the JVM runs with
+ * {@code -Ddatastructures.tree.MaxHeap.instrumented=true}. Without that
+ * property the instrumentation code is removed by the JIT, so the heap has
+ * no overhead at all.
+ * The methods are called on the hot path of the heap, so they should be
+ * cheap (e.g. increment counters) and must not modify the heap.
+ *
+ * @author David Perez
+ *
+ */
+public interface MaxHeapListener {
+
+	/**
+	 * An item was inserted
+	 * @param size size of the heap after the insert
+	 */
+	void onInsert(int size);
+
+	/**
+	 * The max item was extracted
+	 * @param size size of the heap after the extraction
+	 */
+	void onExtract(int size);
+
+	/**
+	 * A sift up finished
+	 * @param depth levels that the item moved up (each one is a swap)
+	 * @param compares comparisons between items
+	 */
+	void onSiftUp(int depth, int compares);
+
+	/**
+	 * A sift down finished
+	 * @param depth levels that the item moved down (each one is a swap)
+	 * @param compares comparisons between items
+	 */
+	void onSiftDown(int depth, int compares);
+
+}
@@ -0,0 +1,246 @@
+package datastructures.tree;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@code MaxHeapListener} that keeps counters and histograms of the
+ * heap operations:
+ * <ul>
+ * 	<li>counters of inserts, extracts, compares and swaps</li>
+ * 	<li>histograms of the sift up and sift down depth (one bucket per level)</li>
+ * 	<li>histogram of the size of the heap, sampled after every insert and
+ * 	extract (bucket {@code b} counts sizes on {@code [2^(b-1), 2^b)}, and
+ * 	bucket 0 counts the empty heap)</li>
+ * </ul>
+ * A healthy heap has sift depths much lower than {@code log2(size)}; if most
+ * of the sifts go to the bottom of the tree, the items are arriving in the
+ * worst order for the heap (e.g. ascending inserts).
+ * <p>
+ * It is thread-safe, so one instance can listen many heaps (e.g. the shards
+ * of a {@code MultiQueue}).
+ * Remember to run with {@code -Ddatastructures.tree.MaxHeap.instrumented=true}.
+ *
+ * @author David Perez
+ *
+ */
+public class MaxHeapMetrics implements MaxHeapListener {
+
+	/**
+	 * One bucket per level. A heap of int size has at most 31 levels.
+	 */
+	private static final int DEPTH_BUCKETS = 32;
+
+	/**
+	 * One bucket per power of two, plus the bucket for the empty heap
+	 */
+	private static final int SIZE_BUCKETS = 33;
+
+	private final LongAdder inserts = new LongAdder();
+	private final LongAdder extracts = new LongAdder();
+	private final LongAdder compares = new LongAdder();
+	private final LongAdder swaps = new LongAdder();
+	private final AtomicLongArray siftUpDepth = new AtomicLongArray(DEPTH_BUCKETS);
+	private final AtomicLongArray siftDownDepth = new AtomicLongArray(DEPTH_BUCKETS);
+	private final AtomicLongArray sizes = new AtomicLongArray(SIZE_BUCKETS);
+
+	@Override
+	public void onInsert(final int size) {
+		this.inserts.increment();
+		this.sizes.incrementAndGet(sizeBucket(size));
+	}
+
+	@Override
+	public void onExtract(final int size) {
+		this.extracts.increment();
+		this.sizes.incrementAndGet(sizeBucket(size));
+	}
+
+	@Override
+	public void onSiftUp(final int depth, final int compares) {
+		this.compares.add(compares);
+		this.swaps.add(depth);
+		this.siftUpDepth.incrementAndGet(Math.min(depth, DEPTH_BUCKETS - 1));
+	}
+
+	@Override
+	public void onSiftDown(final int depth, final int compares) {
+		this.compares.add(compares);
+		this.swaps.add(depth);
+		this.siftDownDepth.incrementAndGet(Math.min(depth, DEPTH_BUCKETS - 1));
+	}
+
+	public long getInserts() {
+		return this.inserts.sum();
+	}
+
+	public long getExtracts() {
+		return this.extracts.sum();
+	}
+
+	public long getCompares() {
+		return this.compares.sum();
+	}
+
+	public long getSwaps() {
+		return this.swaps.sum();
+	}
+
+	/**
+	 * Histogram of the sift up depth
+	 * @return the count of sifts for each depth (the index)
+	 */
+	public long[] getSiftUpDepthHistogram() {
+		return toArray(this.siftUpDepth);
+	}
+
+	/**
+	 * Histogram of the sift down depth
+	 * @return the count of sifts for each depth (the index)
+	 */
+	public long[] getSiftDownDepthHistogram() {
+		return toArray(this.siftDownDepth);
+	}
+
+	/**
+	 * Histogram of the size of the heap
+	 * @return the count of samples for each bucket, see {@code MaxHeapMetrics}
+	 */
+	public long[] getSizeHistogram() {
+		return toArray(this.sizes);
+	}
+
+	/**
+	 * Start again from zero
+	 */
+	public void reset() {
+		this.inserts.reset();
+		this.extracts.reset();
+		this.compares.reset();
+		this.swaps.reset();
+		for(int i = 0; i < DEPTH_BUCKETS; i++) {
+			this.siftUpDepth.set(i, 0);
+			this.siftDownDepth.set(i, 0);
+		}
+		for(int i = 0; i < SIZE_BUCKETS; i++) {
+			this.sizes.set(i, 0);
+		}
+	}
+
+	/**
+	 * Summary useful for logs
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("inserts=").append(getInserts())
+			.append(" extracts=").append(getExtracts())
+			.append(" compares=").append(getCompares())
+			.append(" swaps=").append(getSwaps())
+			.append(" siftUpDepth=").append(histogram(this.siftUpDepth))
+			.append(" siftDownDepth=").append(histogram(this.siftDownDepth))
+			.append(" size(log2)=").append(histogram(this.sizes));
+		return sb.toString();
+	}
+
+	/**
+	 * Bucket of a heap size: the number of bits of the size
+	 * @param size
+	 * @return
+	 */
+	private static int sizeBucket(final int size) {
+		return Integer.SIZE - Integer.numberOfLeadingZeros(size);
+	}
+
+	private static long[] toArray(final AtomicLongArray histogram) {
+		final long[] arr = new long[histogram.length()];
+		for(int i = 0; i < arr.length; i++) {
+			arr[i] = histogram.get(i);
+		}
+		return arr;
+	}
+
+	/**
+	 * Print only the buckets that are not empty, e.g. {0:10, 3:2}
+	 */
+	private static String histogram(final AtomicLongArray histogram) {
+		final StringBuilder sb = new StringBuilder("{");
+		for(int i = 0; i < histogram.length(); i++) {
+			final long count = histogram.get(i);
+			if(count != 0) {
+				if(sb.length() > 1) {
+					sb.append(", ");
+				}
+				sb.append(i).append(':').append(count);
+			}
+		}
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * Test cases. Run them with and without
+	 * {@code -Ddatastructures.tree.MaxHeap.instrumented=true}
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+
+		/*
+		 * The aggregation of the events
+		 */
+		final MaxHeapMetrics metrics = new MaxHeapMetrics();
+		metrics.onInsert(1);
+		metrics.onSiftUp(0, 0);
+		metrics.onInsert(2);
+		metrics.onSiftUp(1, 1);
+		metrics.onExtract(1);
+		metrics.onSiftDown(2, 3);
+		metrics.onSiftDown(100, 1);
+		assertTrue(metrics.getInserts() == 2 && metrics.getExtracts() == 1, "count inserts and extracts");
+		assertTrue(metrics.getCompares() == 5 && metrics.getSwaps() == 103, "count compares and swaps");
+		final long[] up = metrics.getSiftUpDepthHistogram();
+		assertTrue(up[0] == 1 && up[1] == 1, "sift up depth histogram");
+		final long[] down = metrics.getSiftDownDepthHistogram();
+		assertTrue(down[2] == 1 && down[DEPTH_BUCKETS - 1] == 1, "sift down depth histogram, deep sifts on the last bucket");
+		final long[] sizes = metrics.getSizeHistogram();
+		assertTrue(sizes[1] == 2 && sizes[2] == 1, "size histogram");
+		assertTrue(metrics.toString().contains("siftUpDepth={0:1, 1:1}"), "summary " + metrics);
+		metrics.reset();
+		assertTrue(metrics.getInserts() == 0 && metrics.getSizeHistogram()[1] == 0, "reset");
+
+		/*
+		 * Listening a real heap
+		 */
+		final MaxHeap<Integer> heap = new MaxHeap<Integer>();
+		if(!MaxHeap.isInstrumented()) {
+			try {
+				heap.setListener(metrics);
+				assertTrue(false, "setListener() should fail without instrumentation");
+			} catch (IllegalStateException e) {
+				assertTrue(true, "setListener() fails without instrumentation");
+			}
+			return;
+		}
+		heap.setListener(metrics);
+		for(int i = 1; i <= 7; i++) {
+			heap.insert(i); //ascending: every insert goes up to the root
+		}
+		assertTrue(metrics.getInserts() == 7, "inserts of a heap");
+		final long[] heapUp = metrics.getSiftUpDepthHistogram();
+		assertTrue(heapUp[0] == 1 && heapUp[1] == 2 && heapUp[2] == 4, "ascending inserts sift up to the root");
+		assertTrue(metrics.getSwaps() == 10 && metrics.getCompares() == 10, "swaps and compares of the inserts");
+		heap.extractMax();
+		assertTrue(metrics.getExtracts() == 1 && metrics.getSizeHistogram()[3] == 5, "extracts of a heap");
+		heap.setListener(null);
+		heap.extractMax();
+		assertTrue(metrics.getExtracts() == 1, "no events after removing the listener");
+	}
+
+	private static void assertTrue(final boolean val, final String msg) {
+		if(val) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Fail: " + msg);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package datastructures.tree;
+
+/**
+ * Priority Queue (PQ) Abstract Data Type (ADT) where the item with the
+ * highest priority is the bigger one, according to {@code Comparable}.
+ * Implemented by {@code MaxHeap} (array based) and {@code PairingHeap}
+ * (mergeable), so the code that uses the queue doesn't depend on the
+ * implementation.
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public interface MaxPriorityQueue<T extends Comparable<T>> {
+
+	/**
+	 * Verify if the queue is empty
+	 * @return
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Number of items on the queue
+	 * @return
+	 */
+	int size();
+
+	/**
+	 * Add an item to the queue
+	 * @param item
+	 */
+	void insert(T item);
+
+	/**
+	 * Get the maximum item without removing it
+	 * @return
+	 */
+	T findMax();
+
+	/**
+	 * Remove the maximum item and return it
+	 * @return
+	 * @throws java.util.NoSuchElementException if the queue is empty
+	 */
+	T extractMax();
+
+}
@@ -0,0 +1,420 @@
+package datastructures.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent priority queue built from several {@code MaxHeap} shards
+ * (a "MultiQueue"). Each shard is protected by its own lock, so threads
+ * working on different shards never contend with each other, instead of
+ * all of them waiting on one global lock.
+ * <p>
+ * The ordering mode is explicit:
+ * <ul>
+ * 	<li>{@code STRICT}: {@code extractMax()} locks every shard (always in
+ * 	the same order, to avoid deadlocks) and removes the global maximum.
+ * 	Same semantics as a single locked {@code MaxHeap}, but inserts still
+ * 	scale because they only lock one shard.</li>
+ * 	<li>{@code RELAXED}: {@code extractMax()} picks two random shards and
+ * 	removes the max of the one with the higher max ("power of two choices").
+ * 	The item returned is not always the global maximum, but with high
+ * 	probability it is one of the top items of the queue.</li>
+ * </ul>
+ * The idea comes from
+ * <a href="https://arxiv.org/abs/1411.1209">MultiQueues: Simpler, Faster, and
+ * Better Relaxed Concurrent Priority Queues</a>
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class MultiQueue<T extends Comparable<T>> {
+
+	/**
+	 * Ordering guarantee of {@code MultiQueue#extractMax()}
+	 */
+	public enum Ordering {
+		STRICT,
+		RELAXED
+	}
+
+	/**
+	 * How many times we try to grab a random free shard before blocking
+	 * on one of them
+	 */
+	private static final int TRY_LOCK_ATTEMPTS = 8;
+
+	/**
+	 * One heap of the MultiQueue, with its own lock
+	 * @author David Perez
+	 *
+	 * @param <T>
+	 */
+	private static class Shard<T extends Comparable<T>> {
+
+		/**
+		 * Guards {@code Shard#heap}
+		 */
+		private final ReentrantLock lock = new ReentrantLock();
+
+		/**
+		 * The items of this shard
+		 */
+		private final MaxHeap<T> heap = new MaxHeap<T>();
+
+		/**
+		 * Copy of the max of the heap (null if the heap is empty). It is
+		 * written while holding the lock, but read without it so the relaxed
+		 * mode can compare two shards without locking both.
+		 */
+		private volatile T max;
+
+		/**
+		 * Copy of the size of the heap, for the same reason
+		 */
+		private volatile int size;
+
+		/**
+		 * Refresh the cached values. Call it while holding the lock.
+		 */
+		private void publish() {
+			this.size = this.heap.size();
+			this.max = this.heap.isEmpty() ? null : this.heap.findMax();
+		}
+	}
+
+	/**
+	 * The shards of the queue
+	 */
+	private final Shard<T>[] shards;
+
+	/**
+	 * Ordering mode of the queue
+	 */
+	private final Ordering ordering;
+
+	/**
+	 * Create a relaxed queue with two shards per available processor,
+	 * which is the configuration recommended on the MultiQueue paper.
+	 */
+	public MultiQueue() {
+		this(2 * Runtime.getRuntime().availableProcessors(), Ordering.RELAXED);
+	}
+
+	/**
+	 * Create a queue
+	 * @param shards number of heaps (at least one)
+	 * @param ordering the ordering mode of {@code MultiQueue#extractMax()}
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public MultiQueue(final int shards, final Ordering ordering) {
+		if(shards < 1) {
+			throw new IllegalArgumentException("At least one shard is required, got " + shards);
+		}
+		if(ordering == null) {
+			throw new IllegalArgumentException("The ordering mode is required");
+		}
+		this.ordering = ordering;
+		this.shards = new Shard[shards];
+		for(int i = 0; i < shards; i++) {
+			this.shards[i] = new Shard<T>();
+		}
+	}
+
+	/**
+	 * Get the ordering mode of the queue
+	 * @return
+	 */
+	public Ordering getOrdering() {
+		return this.ordering;
+	}
+
+	/**
+	 * Insert an item on a random shard. If the shard is busy we try
+	 * another one, so inserts rarely wait.
+	 * Runtime: O(log(N/shards))
+	 * @param item
+	 * @return false if the item is null, otherwise true
+	 */
+	public boolean insert(final T item) {
+		if(item == null) {
+			return false;
+		}
+
+		final Shard<T> shard = lockRandomShard();
+		try {
+			shard.heap.insert(item);
+			shard.publish();
+		} finally {
+			shard.lock.unlock();
+		}
+		return true;
+	}
+
+	/**
+	 * Remove and return the max item according to the ordering mode.
+	 * @return the item, or null if the queue is empty
+	 */
+	public T extractMax() {
+		if(this.ordering == Ordering.STRICT) {
+			return extractMaxStrict();
+		}
+		return extractMaxRelaxed();
+	}
+
+	/**
+	 * Look at the max item without removing it. With concurrent writers
+	 * the value can be outdated as soon as it is returned.
+	 * @return the max item, or null if the queue is empty
+	 */
+	public T findMax() {
+		T max = null;
+		for(final Shard<T> shard : this.shards) {
+			final T candidate = shard.max;
+			if(candidate != null && (max == null || candidate.compareTo(max) > 0)) {
+				max = candidate;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Number of items on the queue. With concurrent writers it is an
+	 * estimation.
+	 * @return
+	 */
+	public int size() {
+		int size = 0;
+		for(final Shard<T> shard : this.shards) {
+			size += shard.size;
+		}
+		return size;
+	}
+
+	/**
+	 * Verify if the queue is empty. With concurrent writers it is an
+	 * estimation.
+	 * @return
+	 */
+	public boolean isEmpty() {
+		for(final Shard<T> shard : this.shards) {
+			if(shard.size != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Lock every shard, in index order, and extract the global max.
+	 * @return
+	 */
+	private T extractMaxStrict() {
+		for(final Shard<T> shard : this.shards) {
+			shard.lock.lock();
+		}
+		try {
+			Shard<T> best = null;
+			for(final Shard<T> shard : this.shards) {
+				if(shard.heap.isEmpty()) {
+					continue;
+				}
+				if(best == null || shard.heap.findMax().compareTo(best.heap.findMax()) > 0) {
+					best = shard;
+				}
+			}
+			if(best == null) {
+				return null;
+			}
+			final T max = best.heap.extractMax();
+			best.publish();
+			return max;
+		} finally {
+			for(int i = this.shards.length - 1; i >= 0; i--) {
+				this.shards[i].lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Two-choice extraction: compare the cached max of two random shards
+	 * and extract from the best one.
+	 * @return
+	 */
+	private T extractMaxRelaxed() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		while(true) {
+			final Shard<T> a = this.shards[random.nextInt(this.shards.length)];
+			final Shard<T> b = this.shards[random.nextInt(this.shards.length)];
+			final T maxA = a.max;
+			final T maxB = b.max;
+
+			final Shard<T> best;
+			if(maxA == null && maxB == null) {
+				//both are empty, maybe the whole queue too
+				if(isEmpty()) {
+					return null;
+				}
+				continue;
+			}else if(maxA == null) {
+				best = b;
+			}else if(maxB == null) {
+				best = a;
+			}else {
+				best = maxA.compareTo(maxB) >= 0 ? a : b;
+			}
+
+			if(!best.lock.tryLock()) {
+				continue; //someone else is working there, choose again
+			}
+			try {
+				if(best.heap.isEmpty()) {
+					continue; //emptied after we read its max
+				}
+				final T max = best.heap.extractMax();
+				best.publish();
+				return max;
+			} finally {
+				best.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Lock a random shard, trying first the ones that are not busy.
+	 * @return the locked shard. The caller must unlock it.
+	 */
+	private Shard<T> lockRandomShard() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		for(int i = 0; i < TRY_LOCK_ATTEMPTS; i++) {
+			final Shard<T> shard = this.shards[random.nextInt(this.shards.length)];
+			if(shard.lock.tryLock()) {
+				return shard;
+			}
+		}
+		final Shard<T> shard = this.shards[random.nextInt(this.shards.length)];
+		shard.lock.lock();
+		return shard;
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+
+		/*
+		 * Argument validation
+		 */
+		try {
+			new MultiQueue<Integer>(0, Ordering.STRICT);
+			assertTrue(false, "zero shards should be rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(true, "zero shards rejected");
+		}
+
+		/*
+		 * Strict mode behaves like a single MaxHeap
+		 */
+		final MultiQueue<Integer> strict = new MultiQueue<Integer>(4, Ordering.STRICT);
+		assertTrue(strict.isEmpty(), "strict queue starts empty");
+		assertTrue(strict.extractMax() == null, "extractMax() on an empty queue returns null");
+		assertTrue(strict.findMax() == null, "findMax() on an empty queue returns null");
+		assertTrue(!strict.insert(null), "cannot insert null");
+		final int[] values = {5, 70, 12, 50, 20, 10, 99, 1};
+		for(final int value : values) {
+			strict.insert(value);
+		}
+		assertTrue(strict.size() == values.length, "size() counts items of every shard");
+		assertTrue(strict.findMax() == 99, "findMax() sees the global max");
+		final int[] expected = {99, 70, 50, 20, 12, 10, 5, 1};
+		boolean ordered = true;
+		for(final int value : expected) {
+			ordered &= strict.extractMax() == value;
+		}
+		assertTrue(ordered, "strict mode extracts in descending order");
+		assertTrue(strict.isEmpty(), "and then it is empty");
+
+		/*
+		 * Relaxed mode returns every item exactly once
+		 */
+		final MultiQueue<Integer> relaxed = new MultiQueue<Integer>(4, Ordering.RELAXED);
+		assertTrue(relaxed.extractMax() == null, "relaxed extractMax() on an empty queue returns null");
+		for(int i = 0; i < 1000; i++) {
+			relaxed.insert(i);
+		}
+		final boolean[] seen = new boolean[1000];
+		int count = 0;
+		Integer item;
+		while((item = relaxed.extractMax()) != null) {
+			seen[item] = true;
+			count++;
+		}
+		boolean all = count == 1000;
+		for(final boolean value : seen) {
+			all &= value;
+		}
+		assertTrue(all, "relaxed mode extracts every item exactly once");
+
+		/*
+		 * Concurrent producers and consumers don't lose or duplicate items
+		 */
+		for(final Ordering ordering : Ordering.values()) {
+			final MultiQueue<Integer> queue = new MultiQueue<Integer>(8, ordering);
+			final int threads = 4;
+			final int perThread = 5000;
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Thread> workers = new ArrayList<Thread>();
+			final int[][] extracted = new int[threads][];
+			for(int t = 0; t < threads; t++) {
+				final int id = t;
+				final Thread worker = new Thread(() -> {
+					final int[] mine = new int[perThread];
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for(int i = 0; i < perThread; i++) {
+						queue.insert(id * perThread + i);
+						//at least our own item is there, but the relaxed
+						//emptiness check is racy, so try again on null
+						Integer value;
+						while((value = queue.extractMax()) == null) {
+							Thread.yield();
+						}
+						mine[i] = value;
+					}
+					extracted[id] = mine;
+				});
+				workers.add(worker);
+				worker.start();
+			}
+			start.countDown();
+			for(final Thread worker : workers) {
+				worker.join();
+			}
+			final boolean[] found = new boolean[threads * perThread];
+			boolean unique = true;
+			for(final int[] mine : extracted) {
+				for(final int value : mine) {
+					unique &= !found[value];
+					found[value] = true;
+				}
+			}
+			assertTrue(unique && queue.isEmpty(), ordering + " mode is safe with concurrent threads");
+		}
+	}
+
+	private static void assertTrue(final boolean val, final String msg) {
+		if(val) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Fail: " + msg);
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+package datastructures.tree;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput benchmark of {@code MultiQueue} against a {@code MaxHeap}
+ * protected by one global lock, from 1 to 64 threads.
+ * <p>
+ * Each thread runs a 50/50 mix of {@code insert()} and {@code extractMax()}
+ * during a fixed amount of time, on a queue pre-filled with random items,
+ * and we report the total operations per second.
+ * It is a plain {@code main} (no external dependencies, like the rest of the
+ * repository), so the numbers are indicative: run it with a warm JVM and on
+ * an idle machine, e.g.
+ * <pre>
+ * java -cp bin datastructures.tree.MultiQueueBenchmark 2000
+ * </pre>
+ * where the optional argument is the measurement time per run in milliseconds.
+ *
+ * @author David Perez
+ *
+ */
+public class MultiQueueBenchmark {
+
+	/**
+	 * Items on the queue before the measurement starts
+	 */
+	private static final int PREFILL = 100_000;
+
+	/**
+	 * Thread counts to measure
+	 */
+	private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+	/**
+	 * The operations measured on every queue
+	 */
+	private interface Target {
+		void insert(Integer item);
+		Integer extractMax();
+	}
+
+	/**
+	 * The baseline: one {@code MaxHeap} behind a global lock
+	 */
+	private static class LockedMaxHeap implements Target {
+
+		private final MaxHeap<Integer> heap = new MaxHeap<Integer>();
+
+		@Override
+		public synchronized void insert(final Integer item) {
+			this.heap.insert(item);
+		}
+
+		@Override
+		public synchronized Integer extractMax() {
+			if(this.heap.isEmpty()) {
+				return null;
+			}
+			return this.heap.extractMax();
+		}
+	}
+
+	/**
+	 * Adapter for {@code MultiQueue}
+	 */
+	private static class MultiQueueTarget implements Target {
+
+		private final MultiQueue<Integer> queue;
+
+		MultiQueueTarget(final MultiQueue.Ordering ordering) {
+			this.queue = new MultiQueue<Integer>(
+					2 * Runtime.getRuntime().availableProcessors(), ordering);
+		}
+
+		@Override
+		public void insert(final Integer item) {
+			this.queue.insert(item);
+		}
+
+		@Override
+		public Integer extractMax() {
+			return this.queue.extractMax();
+		}
+	}
+
+	/**
+	 * Run the benchmark
+	 * @param args optional measurement time per run, in milliseconds
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+		final long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+
+		System.out.println("threads\tlocked MaxHeap\tMultiQueue STRICT\tMultiQueue RELAXED (ops/s)");
+		for(final int threads : THREADS) {
+			final long locked = run(new LockedMaxHeap(), threads, millis);
+			final long strict = run(new MultiQueueTarget(MultiQueue.Ordering.STRICT), threads, millis);
+			final long relaxed = run(new MultiQueueTarget(MultiQueue.Ordering.RELAXED), threads, millis);
+			System.out.println(threads + "\t" + locked + "\t" + strict + "\t" + relaxed);
+		}
+	}
+
+	/**
+	 * Measure one queue with a given number of threads
+	 * @return operations per second
+	 */
+	private static long run(final Target target, final int threads, final long millis)
+			throws InterruptedException {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		for(int i = 0; i < PREFILL; i++) {
+			target.insert(random.nextInt());
+		}
+
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final CountDownLatch start = new CountDownLatch(1);
+		final LongAdder operations = new LongAdder();
+		final Thread[] workers = new Thread[threads];
+		for(int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				final ThreadLocalRandom r = ThreadLocalRandom.current();
+				long done = 0;
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				while(running.get()) {
+					if(r.nextBoolean()) {
+						target.insert(r.nextInt());
+					}else {
+						target.extractMax();
+					}
+					done++;
+				}
+				operations.add(done);
+			});
+			workers[t].start();
+		}
+
+		final long begin = System.nanoTime();
+		start.countDown();
+		Thread.sleep(millis);
+		running.set(false);
+		for(final Thread worker : workers) {
+			worker.join();
+		}
+		final long elapsed = System.nanoTime() - begin;
+		return operations.sum() * 1_000_000_000L / elapsed;
+	}
+
+}
@@ -0,0 +1,296 @@
+package datastructures.tree;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Max pairing heap: a mergeable heap with the same API of {@code MaxHeap}
+ * plus {@code PairingHeap#meld(PairingHeap)}.
+ * <p>
+ * Merging two array based heaps needs to insert every item of one heap into
+ * the other one. A pairing heap is a tree where each node keeps a list of its
+ * children (first child and next sibling pointers), and two heaps are merged
+ * just by linking the root with the lower priority as the first child of the
+ * other root, in O(1).
+ * <p>
+ * Runtimes:
+ * <ul>
+ * 	<li>insert, findMax, meld: O(1)</li>
+ * 	<li>extractMax: O(log(N)) amortized</li>
+ * </ul>
+ * A good summary can be found
+ * <a href="https://en.wikipedia.org/wiki/Pairing_heap">here</a>
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class PairingHeap<T extends Comparable<T>> implements MaxPriorityQueue<T> {
+
+	/**
+	 * Node of the heap tree
+	 * @author David Perez
+	 *
+	 * @param <T>
+	 */
+	private static class PairingNode<T> {
+
+		/**
+		 * The item of the node
+		 */
+		private final T item;
+
+		/**
+		 * First node of the list of children
+		 */
+		private PairingNode<T> child;
+
+		/**
+		 * Next node on the list of children of the parent
+		 */
+		private PairingNode<T> sibling;
+
+		PairingNode(final T item) {
+			this.item = item;
+		}
+	}
+
+	/**
+	 * The root of the tree, it has the max item
+	 */
+	private PairingNode<T> root;
+
+	/**
+	 * Number of items of the heap
+	 */
+	private int size;
+
+	@Override
+	public boolean isEmpty() {
+		return this.root == null;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Insert an item, i.e. meld the heap with a heap of a single node.
+	 * Runtime: O(1)
+	 * @param item
+	 */
+	@Override
+	public void insert(final T item) {
+		this.root = link(this.root, new PairingNode<T>(item));
+		this.size++;
+	}
+
+	/**
+	 * Runtime: O(1)
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	@Override
+	public T findMax() {
+		if(this.root == null) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		return this.root.item;
+	}
+
+	/**
+	 * Remove the root and merge its children by pairs.
+	 * Runtime: O(log(N)) amortized
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	@Override
+	public T extractMax() {
+		if(this.root == null) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		final T max = this.root.item;
+		this.root = mergePairs(this.root.child);
+		this.size--;
+		return max;
+	}
+
+	/**
+	 * Move all the items of the other heap to this heap. The other heap
+	 * becomes empty.
+	 * Runtime: O(1)
+	 * @param other
+	 */
+	public void meld(final PairingHeap<T> other) {
+		if(other == null || other == this) {
+			return;
+		}
+		this.root = link(this.root, other.root);
+		this.size += other.size;
+		other.root = null;
+		other.size = 0;
+	}
+
+	/**
+	 * Link two trees: the root with lower priority becomes the first child
+	 * of the other one.
+	 * @param a a root, or null
+	 * @param b another root, or null
+	 * @return the root of the linked tree
+	 */
+	private static <T extends Comparable<T>> PairingNode<T> link(final PairingNode<T> a, final PairingNode<T> b) {
+		if(a == null) {
+			return b;
+		}
+		if(b == null) {
+			return a;
+		}
+		if(b.item.compareTo(a.item) > 0) {
+			a.sibling = b.child;
+			b.child = a;
+			return b;
+		}
+		b.sibling = a.child;
+		a.child = b;
+		return a;
+	}
+
+	/**
+	 * The "two-pass" merge of a list of siblings. First we link them by pairs
+	 * from left to right, then we link the pairs from right to left.
+	 * It is iterative (the sibling pointers are reused to keep the list of
+	 * pairs), so a long list of children cannot overflow the stack.
+	 * @param first first node of the list
+	 * @return the new root
+	 */
+	private static <T extends Comparable<T>> PairingNode<T> mergePairs(PairingNode<T> first) {
+		//first pass, the pairs list ends up in reverse order
+		PairingNode<T> pairs = null;
+		while(first != null) {
+			final PairingNode<T> a = first;
+			final PairingNode<T> b = a.sibling;
+			if(b == null) {
+				a.sibling = pairs;
+				pairs = a;
+				break;
+			}
+			first = b.sibling;
+			a.sibling = null;
+			b.sibling = null;
+			final PairingNode<T> pair = link(a, b);
+			pair.sibling = pairs;
+			pairs = pair;
+		}
+
+		//second pass, from the last pair to the first one
+		PairingNode<T> result = null;
+		while(pairs != null) {
+			final PairingNode<T> next = pairs.sibling;
+			pairs.sibling = null;
+			result = link(result, pairs);
+			pairs = next;
+		}
+		return result;
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+		final PairingHeap<Integer> heap = new PairingHeap<Integer>();
+		assertTrue(heap.isEmpty() && heap.size() == 0, "starts empty");
+		try {
+			heap.extractMax();
+			assertTrue(false, "extractMax() on an empty heap should fail");
+		} catch (NoSuchElementException e) {
+			assertTrue(true, "extractMax() on an empty heap fails");
+		}
+
+		heap.insert(10);
+		assertTrue(heap.findMax() == 10 && heap.size() == 1, "insert one item");
+		heap.insert(20);
+		heap.insert(5);
+		assertTrue(heap.findMax() == 20 && heap.size() == 3, "findMax() after many inserts");
+		assertTrue(heap.extractMax() == 20, "extract max");
+		assertTrue(heap.extractMax() == 10, "extract max");
+		assertTrue(heap.extractMax() == 5, "extract max");
+		assertTrue(heap.isEmpty(), "and then it is empty");
+
+		/*
+		 * Same behavior as MaxHeap, through the PQ ADT
+		 */
+		final Random random = new Random(7);
+		final int[] values = random.ints(1000, -500, 500).toArray();
+		final int[] fromPairing = drain(new PairingHeap<Integer>(), values);
+		final int[] fromMaxHeap = drain(new MaxHeap<Integer>(), values);
+		final int[] expected = values.clone();
+		Arrays.sort(expected);
+		for(int i = 0; i < expected.length / 2; i++) {
+			final int temp = expected[i];
+			expected[i] = expected[expected.length - 1 - i];
+			expected[expected.length - 1 - i] = temp;
+		}
+		assertTrue(Arrays.equals(fromPairing, expected), "extracts in descending order");
+		assertTrue(Arrays.equals(fromPairing, fromMaxHeap), "same order as MaxHeap");
+
+		/*
+		 * meld()
+		 */
+		final PairingHeap<Integer> a = new PairingHeap<Integer>();
+		final PairingHeap<Integer> b = new PairingHeap<Integer>();
+		a.insert(1);
+		a.insert(30);
+		b.insert(20);
+		b.insert(40);
+		b.insert(2);
+		a.meld(b);
+		assertTrue(a.size() == 5 && b.isEmpty() && b.size() == 0, "meld moves every item");
+		assertTrue(a.extractMax() == 40 && a.extractMax() == 30 && a.extractMax() == 20
+				&& a.extractMax() == 2 && a.extractMax() == 1, "melded heap keeps the order");
+		a.meld(new PairingHeap<Integer>());
+		assertTrue(a.isEmpty(), "meld with an empty heap");
+		b.insert(3);
+		a.meld(b);
+		assertTrue(a.findMax() == 3, "meld an empty heap with another heap");
+		a.meld(a);
+		assertTrue(a.size() == 1, "meld with itself does nothing");
+
+		/*
+		 * A root with many children doesn't overflow the stack
+		 */
+		final PairingHeap<Integer> wide = new PairingHeap<Integer>();
+		wide.insert(1_000_000);
+		for(int i = 0; i < 1_000_000; i++) {
+			wide.insert(i);
+		}
+		wide.extractMax();
+		assertTrue(wide.extractMax() == 999_999, "extractMax() with a million children");
+	}
+
+	/**
+	 * Insert the values on the queue and extract all of them
+	 * @param queue
+	 * @param values
+	 * @return the extracted values
+	 */
+	private static int[] drain(final MaxPriorityQueue<Integer> queue, final int[] values) {
+		for(final int value : values) {
+			queue.insert(value);
+		}
+		final int[] result = new int[queue.size()];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = queue.extractMax();
+		}
+		return result;
+	}
+
+	private static void assertTrue(final boolean val, final String msg) {
+		if(val) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Fail: " + msg);
+		}
+	}
+
+}
@@ -0,0 +1,276 @@
+package datastructures.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bounded heap that keeps only the K largest items of a stream.
+ * <p>
+ * A {@code MaxHeap} keeps every item, but to answer "which are the K largest
+ * items?" we only need to remember K of them. Internally this is a
+ * <b>min</b>-heap of size K: its root is the smallest of the K best items seen
+ * so far, i.e. the threshold that a new item must beat. When the heap is
+ * full, an item that does not beat the root is rejected in O(1), and an
+ * item that beats it replaces the root in O(log(K)).
+ * <p>
+ * It is not thread-safe. To process a stream with several threads, give one
+ * {@code TopK} to each thread and combine them at the end with
+ * {@code TopK#merge(TopK)}.
+ * <p>
+ * Like {@code MaxHeap}, the heap array starts at index 1 to make the math
+ * simpler.
+ *
+ * @author David Perez
+ *
+ * @param <T>
+ */
+public class TopK<T extends Comparable<T>> {
+
+	/**
+	 * Heap array. Position zero is not used.
+	 */
+	private final T[] heap;
+
+	/**
+	 * Maximum number of items kept (the K)
+	 */
+	private final int capacity;
+
+	/**
+	 * Number of items on the heap
+	 */
+	private int size;
+
+	/**
+	 * Create an empty top-K heap
+	 * @param capacity the K, at least 1
+	 */
+	@SuppressWarnings("unchecked")
+	public TopK(final int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("K should be at least 1, got " + capacity);
+		}
+		this.capacity = capacity;
+		this.heap = (T[]) new Comparable<?>[capacity + 1];
+	}
+
+	/**
+	 * Offer an item of the stream.
+	 * Runtime: O(1) if the item is rejected, otherwise O(log(K))
+	 * @param item
+	 * @return true if the item is (for now) one of the K largest
+	 */
+	public boolean offer(final T item) {
+		if(item == null) {
+			return false;
+		}
+
+		if(this.size < this.capacity) {
+			this.size++;
+			this.heap[this.size] = item;
+			siftUp(this.size);
+			return true;
+		}
+
+		//the heap is full: the item should beat the smallest of the best
+		if(item.compareTo(this.heap[1]) <= 0) {
+			return false;
+		}
+		this.heap[1] = item;
+		siftDown(1);
+		return true;
+	}
+
+	/**
+	 * The smallest item that is still on the top K, i.e. the value that
+	 * a new item should beat once the heap is full.
+	 * @return the threshold, or null if the heap is empty
+	 */
+	public T threshold() {
+		if(this.size == 0) {
+			return null;
+		}
+		return this.heap[1];
+	}
+
+	/**
+	 * Number of items kept, never more than K
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Verify if the heap is empty
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Get the K
+	 * @return
+	 */
+	public int capacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Add the items of another top-K heap to this one. Useful to combine the
+	 * per-thread heaps after processing a stream in parallel. The other heap
+	 * is not modified.
+	 * Runtime: O(M*log(K)) where M is the size of the other heap
+	 * @param other
+	 * @return this instance, to chain merges
+	 */
+	public TopK<T> merge(final TopK<T> other) {
+		if(other == null || other == this) {
+			return this;
+		}
+		for(int i = 1; i <= other.size; i++) {
+			offer(other.heap[i]);
+		}
+		return this;
+	}
+
+	/**
+	 * Combine many top-K heaps into a new one.
+	 * @param capacity the K of the result
+	 * @param parts
+	 * @return
+	 */
+	@SafeVarargs
+	public static <T extends Comparable<T>> TopK<T> merge(final int capacity, final TopK<T>... parts) {
+		final TopK<T> result = new TopK<T>(capacity);
+		for(final TopK<T> part : parts) {
+			result.merge(part);
+		}
+		return result;
+	}
+
+	/**
+	 * Get the result, sorted from the largest to the smallest item.
+	 * The heap is not modified, so we can keep offering items later.
+	 * Runtime: O(K*log(K))
+	 * @return
+	 */
+	public List<T> toSortedList() {
+		final T[] items = Arrays.copyOfRange(this.heap, 1, this.size + 1);
+		Arrays.sort(items, Collections.reverseOrder());
+		return new ArrayList<T>(Arrays.asList(items));
+	}
+
+	/**
+	 * Bubble up a node as long as needed to restore the (min) heap property.
+	 * @param node index of the node
+	 */
+	private void siftUp(int node) {
+		final T item = this.heap[node];
+		while(node > 1) {
+			final int parent = node / 2;
+			if(item.compareTo(this.heap[parent]) >= 0) {
+				break;
+			}
+			this.heap[node] = this.heap[parent];
+			node = parent;
+		}
+		this.heap[node] = item;
+	}
+
+	/**
+	 * Bubble down a node as long as needed to restore the (min) heap property.
+	 * @param node index of the node
+	 */
+	private void siftDown(int node) {
+		final T item = this.heap[node];
+		while(node * 2 <= this.size) {
+			int children = node * 2;
+			if(children < this.size && this.heap[children + 1].compareTo(this.heap[children]) < 0) {
+				children++; //the right children is the smallest
+			}
+			if(item.compareTo(this.heap[children]) <= 0) {
+				break;
+			}
+			this.heap[node] = this.heap[children];
+			node = children;
+		}
+		this.heap[node] = item;
+	}
+
+	/**
+	 * Test cases
+	 * @param args
+	 */
+	public static void main(final String[] args) {
+
+		try {
+			new TopK<Integer>(0);
+			assertTrue(false, "K=0 should be rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(true, "K=0 rejected");
+		}
+
+		final TopK<Integer> top = new TopK<Integer>(3);
+		assertTrue(top.isEmpty() && top.threshold() == null, "starts empty, without threshold");
+		assertTrue(top.toSortedList().isEmpty(), "empty result");
+		assertTrue(!top.offer(null), "null is rejected");
+
+		assertTrue(top.offer(5) && top.offer(1) && top.offer(9), "accept while not full");
+		assertTrue(top.size() == 3 && top.threshold() == 1, "threshold is the smallest of the best");
+		assertTrue(!top.offer(1), "reject an item equal to the threshold");
+		assertTrue(!top.offer(0), "reject an item lower than the threshold");
+		assertTrue(top.offer(7), "accept an item that beats the threshold");
+		assertTrue(top.threshold() == 5, "and the threshold moves up");
+		assertEqual(top.toSortedList(), Arrays.asList(9, 7, 5), "sorted result");
+		assertTrue(top.size() == 3, "toSortedList() doesn't modify the heap");
+
+		/*
+		 * Compare with sorting the whole stream
+		 */
+		final Integer[] stream = new Integer[10000];
+		for(int i = 0; i < stream.length; i++) {
+			stream[i] = (i * 7919) % 10007; //a permutation-like sequence
+		}
+		final TopK<Integer> top10 = new TopK<Integer>(10);
+		for(final Integer item : stream) {
+			top10.offer(item);
+		}
+		final Integer[] sorted = stream.clone();
+		Arrays.sort(sorted, Collections.reverseOrder());
+		assertEqual(top10.toSortedList(), Arrays.asList(Arrays.copyOf(sorted, 10)), "top 10 of a stream");
+
+		/*
+		 * Merge per-thread heaps
+		 */
+		final TopK<Integer> a = new TopK<Integer>(4);
+		final TopK<Integer> b = new TopK<Integer>(4);
+		for(int i = 0; i < stream.length; i++) {
+			(i % 2 == 0 ? a : b).offer(stream[i]);
+		}
+		final TopK<Integer> merged = TopK.merge(4, a, b);
+		assertEqual(merged.toSortedList(), Arrays.asList(Arrays.copyOf(sorted, 4)), "merge of two heaps");
+		assertTrue(a.size() == 4 && b.size() == 4, "merge doesn't modify the parts");
+		assertTrue(a.merge(a) == a && a.size() == 4, "merge with itself does nothing");
+	}
+
+	private static void assertTrue(final boolean val, final String msg) {
+		if(val) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Fail: " + msg);
+		}
+	}
+
+	private static void assertEqual(final List<Integer> a, final List<Integer> b, final String msg) {
+		if(a.equals(b)) {
+			System.out.println("Success: " + msg);
+		}else {
+			System.err.println("Fail: " + msg + " Expected " + b + " but got " + a);
+		}
+	}
+
+}